@@ -26,6 +26,8 @@
 package me.lucko.luckperms.api;
 
 import me.lucko.luckperms.LuckPerms;
+import me.lucko.luckperms.api.caching.BulkPermissionResult;
+import me.lucko.luckperms.api.caching.PermissionCheckMetrics;
 import me.lucko.luckperms.api.context.ContextCalculator;
 import me.lucko.luckperms.api.context.ContextManager;
 import me.lucko.luckperms.api.context.ContextSet;
@@ -36,6 +38,7 @@ import me.lucko.luckperms.api.manager.UserManager;
 import me.lucko.luckperms.api.metastacking.MetaStackFactory;
 import me.lucko.luckperms.api.platform.PlatformInfo;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -352,6 +355,38 @@ public interface LuckPermsApi {
     @Nonnull
     LogEntry.Builder newLogEntryBuilder();
 
+    /**
+     * Checks a number of permissions for a number of users, in a single pass.
+     *
+     * <p>This is intended for callers which repeatedly check the same permissions for
+     * many users, such as scoreboard or tab list plugins. The contexts of each user are
+     * only resolved once, and the results are returned in a single compact table.</p>
+     *
+     * <p>Users which are not online are checked in the
+     * {@link ContextManager#getStaticContexts() static contexts}.</p>
+     *
+     * @param users the users to check
+     * @param permissions the permissions to check
+     * @return the results of the checks
+     * @throws NullPointerException if either list, or any element within them, is null
+     * @since 4.0
+     */
+    @Nonnull
+    BulkPermissionResult checkPermissions(@Nonnull List<? extends User> users, @Nonnull List<String> permissions);
+
+    /**
+     * Gets a snapshot of the time taken by the permission checks made since the
+     * plugin was enabled.
+     *
+     * <p>Metrics are always recorded, so this can be used to monitor the cost of
+     * permission checks without enabling verbose.</p>
+     *
+     * @return the permission check metrics
+     * @since 4.0
+     */
+    @Nonnull
+    PermissionCheckMetrics getPermissionCheckMetrics();
+
     /**
      * Returns a permission builder instance
      *
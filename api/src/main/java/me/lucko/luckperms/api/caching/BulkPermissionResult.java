@@ -0,0 +1,72 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.api.caching;
+
+import me.lucko.luckperms.api.Tristate;
+import me.lucko.luckperms.api.User;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The results of checking a number of permissions for a number of users.
+ *
+ * <p>Results are held in a single table, and are looked up using the position of
+ * the user and the permission in the lists passed to the check.</p>
+ *
+ * @since 4.0
+ */
+public interface BulkPermissionResult {
+
+    /**
+     * Gets the users which were checked, in the order they were passed to the check
+     *
+     * @return the users
+     */
+    @Nonnull
+    List<User> getUsers();
+
+    /**
+     * Gets the permissions which were checked, in the order they were passed to the check
+     *
+     * @return the permissions
+     */
+    @Nonnull
+    List<String> getPermissions();
+
+    /**
+     * Gets the result of a permission check
+     *
+     * @param user the index of the user in {@link #getUsers()}
+     * @param permission the index of the permission in {@link #getPermissions()}
+     * @return the result of the check
+     * @throws IndexOutOfBoundsException if either index is out of range
+     */
+    @Nonnull
+    Tristate getResult(int user, int permission);
+
+}
@@ -23,26 +23,52 @@
  *  SOFTWARE.
  */
 
-package me.lucko.luckperms.common.utils;
-
-import lombok.experimental.UtilityClass;
-
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
+package me.lucko.luckperms.api.caching;
 
 /**
- * Nashorn provider utility
+ * The distribution of the time taken by a number of operations.
+ *
+ * <p>Times are recorded approximately, to within about 12.5% of their value.</p>
+ *
+ * @since 4.0
  */
-@UtilityClass
-public class Scripting {
-    private static ScriptEngine SCRIPT_ENGINE = null;
-
-    // Lazily load
-    public static synchronized ScriptEngine getScriptEngine() {
-        if (SCRIPT_ENGINE == null) {
-            SCRIPT_ENGINE = new ScriptEngineManager(null).getEngineByName("nashorn");
-        }
-        return SCRIPT_ENGINE;
-    }
+public interface LatencyDistribution {
+
+    /**
+     * Gets the number of operations recorded
+     *
+     * @return the number of operations
+     */
+    long getCount();
+
+    /**
+     * Gets the total time taken by all of the recorded operations
+     *
+     * @return the total time, in nanoseconds
+     */
+    long getTotalNanos();
+
+    /**
+     * Gets the mean time taken by the recorded operations
+     *
+     * @return the mean time, in nanoseconds
+     */
+    double getMeanNanos();
+
+    /**
+     * Gets the longest time taken by a recorded operation
+     *
+     * @return the longest time, in nanoseconds
+     */
+    long getMaxNanos();
+
+    /**
+     * Gets the time within which the given percentage of operations completed
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the time, in nanoseconds
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    long getPercentileNanos(double percentile);
 
 }
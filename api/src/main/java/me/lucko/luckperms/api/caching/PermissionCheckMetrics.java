@@ -0,0 +1,89 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.api.caching;
+
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A snapshot of the time taken by the permission checks made since the plugin
+ * was enabled.
+ *
+ * <p>Checks are grouped by their origin, which is one of "platform_permission_check",
+ * "platform_lookup_check", "api" or "internal".</p>
+ *
+ * <p>To keep the overhead of recording low, only a sample of checks are timed, so
+ * the counts and totals of checks are estimates.</p>
+ *
+ * @since 4.0
+ */
+public interface PermissionCheckMetrics {
+
+    /**
+     * Gets the time when the metrics started being recorded
+     *
+     * @return the start time, in milliseconds since the epoch
+     */
+    long getStartTime();
+
+    /**
+     * Gets the time taken by all checks
+     *
+     * @return the distribution of check times
+     */
+    @Nonnull
+    LatencyDistribution getChecks();
+
+    /**
+     * Gets the time taken by checks which were answered from a lookup cache,
+     * grouped by origin
+     *
+     * @return the distribution of check times for each origin
+     */
+    @Nonnull
+    Map<String, LatencyDistribution> getCachedChecks();
+
+    /**
+     * Gets the time taken by checks which had to be calculated, grouped by origin
+     *
+     * @return the distribution of check times for each origin
+     */
+    @Nonnull
+    Map<String, LatencyDistribution> getUncachedChecks();
+
+    /**
+     * Gets the time taken to calculate the result of checks, grouped by the processor
+     * which determined the result.
+     *
+     * <p>Checks which were not determined by any processor are grouped under "undefined".</p>
+     *
+     * @return the distribution of calculation times for each processor
+     */
+    @Nonnull
+    Map<String, LatencyDistribution> getProcessors();
+
+}
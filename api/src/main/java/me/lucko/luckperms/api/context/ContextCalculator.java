@@ -47,4 +47,22 @@ public interface ContextCalculator<T> {
     @Nonnull
     MutableContextSet giveApplicableContext(@Nonnull T subject, @Nonnull MutableContextSet accumulator);
 
+    /**
+     * Gets if this calculator is push-based.
+     *
+     * <p>Contexts are normally recalculated shortly after each lookup, in case they
+     * have changed. The contexts of a push-based calculator are instead only recalculated
+     * when the calculator signals that they have changed, by calling
+     * {@link ContextManager#invalidateCache(Object)} for the subject, or
+     * {@link ContextManager#invalidateCaches()}.</p>
+     *
+     * <p>Lookups are only cached indefinitely if every registered calculator is push-based.</p>
+     *
+     * @return true if this calculator signals changes to its contexts
+     * @since 4.0
+     */
+    default boolean isPushBased() {
+        return false;
+    }
+
 }
@@ -164,9 +164,24 @@ public interface ContextManager {
     /**
      * Invalidates the lookup cache for a given subject
      *
+     * <p>Push-based calculators should call this method whenever the
+     * contexts they give for the subject change.</p>
+     *
      * @param subject the subject
+     * @see ContextCalculator#isPushBased()
      */
     @Nonnull
     void invalidateCache(@Nonnull Object subject);
 
+    /**
+     * Invalidates the lookup cache for all subjects, and the static lookup cache.
+     *
+     * <p>Push-based calculators should call this method whenever the contexts they
+     * give change for all subjects at once.</p>
+     *
+     * @see ContextCalculator#isPushBased()
+     * @since 4.0
+     */
+    void invalidateCaches();
+
 }
@@ -27,7 +27,10 @@ package me.lucko.luckperms.api.context;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
 
 import java.util.Iterator;
 import java.util.Map;
@@ -43,10 +46,36 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * <p>On construction, all keys/values are {@link String#intern()}ed, in order to increase
  * comparison speed.</p>
  *
+ * <p>Instances are canonicalised - any two equal immutable sets are the same instance, so
+ * comparisons between them reduce to an identity check. The contexts are held in sorted
+ * key/value order, and the hash code is computed once on construction.</p>
+ *
  * @since 2.16
  */
 public final class ImmutableContextSet extends AbstractContextSet implements ContextSet {
-    private static final ImmutableContextSet EMPTY = new ImmutableContextSet(ImmutableSetMultimap.of());
+    private static final Interner<ImmutableContextSet> INTERNER = Interners.newWeakInterner();
+    private static final ImmutableContextSet EMPTY = create(ImmutableSetMultimap.of());
+
+    /**
+     * Returns the canonical instance representing the given contexts.
+     *
+     * @param contexts the contexts
+     * @return the canonical set
+     */
+    static ImmutableContextSet create(Multimap<String, String> contexts) {
+        ImmutableSetMultimap<String, String> map;
+        if (contexts.size() > 1) {
+            // hold the entries in sorted order, so the set can be compared without copying
+            map = ImmutableSetMultimap.<String, String>builder()
+                    .orderKeysBy(Ordering.natural())
+                    .orderValuesBy(Ordering.natural())
+                    .putAll(contexts)
+                    .build();
+        } else {
+            map = ImmutableSetMultimap.copyOf(contexts);
+        }
+        return INTERNER.intern(new ImmutableContextSet(map));
+    }
 
     /**
      * Creates a builder
@@ -68,7 +97,7 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
      */
     @Nonnull
     public static ImmutableContextSet singleton(@Nonnull String key, @Nonnull String value) {
-        return new ImmutableContextSet(ImmutableSetMultimap.of(sanitizeKey(key), sanitizeValue(value)));
+        return create(ImmutableSetMultimap.of(sanitizeKey(key), sanitizeValue(value)));
     }
 
     /**
@@ -84,7 +113,7 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
      */
     @Nonnull
     public static ImmutableContextSet of(@Nonnull String key1, @Nonnull String value1, @Nonnull String key2, @Nonnull String value2) {
-        return new ImmutableContextSet(ImmutableSetMultimap.of(
+        return create(ImmutableSetMultimap.of(
                 sanitizeKey(key1),
                 sanitizeValue(value1),
                 sanitizeKey(key2),
@@ -113,7 +142,7 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
             Map.Entry<String, String> e = checkNotNull(iterator.next(), "entry");
             b.put(sanitizeKey(e.getKey()), sanitizeValue(e.getValue()));
         }
-        return new ImmutableContextSet(b.build());
+        return create(b.build());
     }
 
     /**
@@ -164,9 +193,11 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
     }
 
     private final ImmutableSetMultimap<String, String> map;
+    private final int hashCode;
 
-    ImmutableContextSet(ImmutableSetMultimap<String, String> contexts) {
+    private ImmutableContextSet(ImmutableSetMultimap<String, String> contexts) {
         this.map = contexts;
+        this.hashCode = contexts.hashCode();
     }
 
     @Override
@@ -220,6 +251,14 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
     public boolean equals(Object o) {
         if (o == this) return true;
         if (!(o instanceof ContextSet)) return false;
+
+        // equal immutable sets are usually the same (canonical) instance, so this
+        // is only reached for mismatches - which the cached hash rejects cheaply
+        if (o instanceof ImmutableContextSet) {
+            final ImmutableContextSet other = (ImmutableContextSet) o;
+            return this.hashCode == other.hashCode && this.map.equals(other.map);
+        }
+
         final ContextSet other = (ContextSet) o;
 
         final Multimap<String, String> otherContexts;
@@ -235,7 +274,7 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
 
     @Override
     public int hashCode() {
-        return map.hashCode();
+        return this.hashCode;
     }
 
     @Override
@@ -341,7 +380,7 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
 
         @Nonnull
         public ImmutableContextSet build() {
-            return new ImmutableContextSet(builder.build());
+            return create(builder.build());
         }
 
     }
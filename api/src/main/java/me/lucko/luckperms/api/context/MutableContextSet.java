@@ -189,7 +189,7 @@ public final class MutableContextSet extends AbstractContextSet implements Conte
         if (map.isEmpty()) {
             return ImmutableContextSet.empty();
         }
-        return new ImmutableContextSet(ImmutableSetMultimap.copyOf(map));
+        return ImmutableContextSet.create(map);
     }
 
     @Nonnull
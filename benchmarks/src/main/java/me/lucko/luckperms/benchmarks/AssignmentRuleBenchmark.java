@@ -0,0 +1,103 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.benchmarks.plugin.BenchmarkPlugin;
+import me.lucko.luckperms.common.assignments.AssignmentRule;
+import me.lucko.luckperms.common.model.User;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of testing a user against the default assignment rules, as
+ * happens for every user on login.
+ *
+ * <p>The rules only have conditions, so applying them never changes the user.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2G")
+public class AssignmentRuleBenchmark {
+    private static final long SEED = 42L;
+    private static final int RULES = 20;
+
+    private BenchmarkPlugin plugin;
+    private User user;
+    private List<AssignmentRule> rules;
+
+    @Setup
+    public void setup() {
+        plugin = new BenchmarkPlugin();
+        user = HolderGraph.generate(plugin, SEED, 100, 5).getUser();
+
+        Random random = new Random(SEED);
+        ImmutableList.Builder<AssignmentRule> rules = ImmutableList.builder();
+        for (int i = 0; i < RULES; i++) {
+            String hasTrue = "<group." + group(random) + "> & (<group." + group(random) + "> | <user.module" + random.nextInt(20) + ".*>)";
+            String hasFalse = random.nextBoolean() ? "<user.module" + random.nextInt(20) + ".action" + random.nextInt(10) + ">" : null;
+            String lacks = "!<group." + group(random) + "> | <group." + group(random) + ">";
+            rules.add(new AssignmentRule(hasTrue, hasFalse, lacks, ImmutableList.of(), ImmutableList.of(), null));
+        }
+        this.rules = rules.build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        plugin.shutdown();
+    }
+
+    private static String group(Random random) {
+        return "group" + random.nextInt(HolderGraph.GROUP_COUNT);
+    }
+
+    @Benchmark
+    public boolean login() {
+        boolean applied = false;
+        for (AssignmentRule rule : rules) {
+            applied |= rule.apply(user);
+        }
+        return applied;
+    }
+}
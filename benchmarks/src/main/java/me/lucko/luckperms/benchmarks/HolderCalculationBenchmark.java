@@ -0,0 +1,153 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.api.LocalizedNode;
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.benchmarks.plugin.BenchmarkPlugin;
+import me.lucko.luckperms.common.caching.type.MetaAccumulator;
+import me.lucko.luckperms.common.caching.type.PermissionCache;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.node.ImmutableLocalizedNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of (re)calculating a users cached data, as happens on
+ * login and after every change to the user or one of the groups they inherit.
+ *
+ * <p>Run with {@code -prof gc} to compare the allocation of each export.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2G")
+public class HolderCalculationBenchmark {
+    private static final long SEED = 42L;
+
+    @Param({"100", "1000", "5000"})
+    public int nodesPerGroup;
+
+    @Param({"5", "50"})
+    public int parents;
+
+    private BenchmarkPlugin plugin;
+    private User user;
+
+    @Setup
+    public void setup() {
+        plugin = new BenchmarkPlugin();
+        user = HolderGraph.generate(plugin, SEED, nodesPerGroup, parents).getUser();
+    }
+
+    @TearDown
+    public void tearDown() {
+        plugin.shutdown();
+    }
+
+    @Benchmark
+    public Map<String, Boolean> exportNodesAndShorthand() {
+        return user.exportNodesAndShorthand(HolderGraph.CONTEXTS, true);
+    }
+
+    @Benchmark
+    public Map<String, Boolean> exportNodesAndShorthandLegacy() {
+        return LegacyExport.exportNodesAndShorthand(user, HolderGraph.CONTEXTS, true);
+    }
+
+    @Benchmark
+    public PermissionCache calculatePermissions() {
+        return user.getCachedData().calculatePermissions(HolderGraph.CONTEXTS);
+    }
+
+    @Benchmark
+    public MetaAccumulator accumulateMeta() {
+        return user.accumulateMeta(null, null, HolderGraph.CONTEXTS);
+    }
+
+    /**
+     * The previous export, which collected the resolved nodes into a list and filtered
+     * it before building the map, then copied the map.
+     */
+    private static final class LegacyExport {
+
+        static Map<String, Boolean> exportNodesAndShorthand(PermissionHolder holder, Contexts context, boolean lowerCase) {
+            List<LocalizedNode> entries;
+            if (context.isApplyGroups()) {
+                entries = holder.resolveInheritances(new LinkedList<>(), null, context);
+            } else {
+                entries = new LinkedList<>();
+                for (Node n : holder.filterNodes(context.getContexts())) {
+                    entries.add(ImmutableLocalizedNode.of(n, holder.getObjectName()));
+                }
+            }
+
+            if (!context.isIncludeGlobal()) {
+                entries.removeIf(n -> !n.isGroupNode() && !n.isServerSpecific());
+            }
+            if (!context.isApplyGlobalWorldGroups()) {
+                entries.removeIf(n -> !n.isGroupNode() && !n.isWorldSpecific());
+            }
+
+            Map<String, Boolean> perms = new HashMap<>();
+            boolean applyShorthand = holder.getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND);
+            for (Node node : entries) {
+                String perm = lowerCase ? node.getPermission().toLowerCase() : node.getPermission();
+                if (perms.putIfAbsent(perm, node.getValuePrimitive()) == null && applyShorthand) {
+                    for (String s : node.resolveShorthand()) {
+                        perms.putIfAbsent(lowerCase ? s.toLowerCase() : s, node.getValuePrimitive());
+                    }
+                }
+            }
+
+            return ImmutableMap.copyOf(perms);
+        }
+    }
+}
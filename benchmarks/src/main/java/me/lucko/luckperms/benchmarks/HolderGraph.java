@@ -0,0 +1,173 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.api.context.ImmutableContextSet;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.node.NodeFactory;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.references.UserIdentifier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Generates a synthetic group hierarchy and a user which inherits from it.
+ *
+ * <p>Each group is given a mix of plain, wildcard, shorthand and regex nodes,
+ * some of which are negated or only apply in specific contexts, plus a handful
+ * of meta nodes. Groups may inherit from a single lower group, to give the
+ * hierarchy some depth.</p>
+ *
+ * <p>Generation is deterministic for a given seed.</p>
+ */
+public final class HolderGraph {
+
+    /**
+     * The contexts used for all benchmark lookups.
+     */
+    public static final ImmutableContextSet CONTEXT = ImmutableContextSet.of("server", "survival", "world", "world_nether");
+    public static final Contexts CONTEXTS = Contexts.of(CONTEXT, true, true, true, true, true, false);
+
+    /**
+     * The number of groups to generate. Must be at least the largest number of parents a user is given.
+     */
+    public static final int GROUP_COUNT = 60;
+
+    private static final int USER_NODES = 20;
+
+    /**
+     * Generates a new graph, and registers the holders with the plugin
+     *
+     * @param plugin the plugin
+     * @param seed the random seed
+     * @param nodesPerGroup the number of permission nodes to give each group
+     * @param parents the number of groups the user directly inherits from
+     * @return the graph
+     */
+    public static HolderGraph generate(LuckPermsPlugin plugin, long seed, int nodesPerGroup, int parents) {
+        if (parents > GROUP_COUNT) {
+            throw new IllegalArgumentException("parents > " + GROUP_COUNT);
+        }
+
+        Random random = new Random(seed);
+
+        List<Group> groups = new ArrayList<>(GROUP_COUNT);
+        for (int i = 0; i < GROUP_COUNT; i++) {
+            Group group = plugin.getGroupManager().getOrMake("group" + i);
+
+            Set<Node> nodes = new HashSet<>();
+            for (int j = 0; j < nodesPerGroup; j++) {
+                nodes.add(randomNode(random, "plugin" + i, j));
+            }
+
+            nodes.add(NodeFactory.makePrefixNode(i, "&7[group" + i + "] ").build());
+            nodes.add(NodeFactory.makeSuffixNode(i, " &7(" + i + ")").build());
+            nodes.add(NodeFactory.makeMetaNode("rank", "group" + i).build());
+            nodes.add(NodeFactory.makeMetaNode("rank", "group" + i + "-survival").setServer("survival").build());
+
+            // inherit a random lower group
+            if (i > 0 && random.nextBoolean()) {
+                nodes.add(NodeFactory.make(groups.get(random.nextInt(i))));
+            }
+
+            group.setEnduringNodes(nodes);
+            groups.add(group);
+        }
+
+        User user = plugin.getUserManager().getOrMake(UserIdentifier.of(new UUID(seed, 0L), "benchmark"));
+
+        Set<Node> nodes = new HashSet<>();
+        for (int j = 0; j < USER_NODES; j++) {
+            nodes.add(randomNode(random, "user", j));
+        }
+
+        List<Group> shuffled = new ArrayList<>(groups);
+        Collections.shuffle(shuffled, random);
+        for (Group group : shuffled.subList(0, parents)) {
+            nodes.add(NodeFactory.make(group));
+        }
+
+        user.setEnduringNodes(nodes);
+
+        return new HolderGraph(ImmutableList.copyOf(groups), user);
+    }
+
+    private static Node randomNode(Random random, String prefix, int index) {
+        String permission;
+
+        int type = random.nextInt(100);
+        if (type < 2) {
+            permission = "r=" + prefix + "\\.regex" + index + "\\.[a-z]+";
+        } else if (type < 10) {
+            permission = prefix + ".module" + index + ".*";
+        } else if (type < 15) {
+            permission = prefix + ".shorthand" + index + ".(build|break|use)";
+        } else {
+            permission = prefix + ".module" + index + ".action" + random.nextInt(10);
+        }
+
+        Node.Builder builder = NodeFactory.newBuilder(permission).setValue(random.nextInt(10) != 0);
+
+        int context = random.nextInt(100);
+        if (context < 15) {
+            builder.setServer("survival");
+        } else if (context < 25) {
+            // never applies in the benchmark contexts
+            builder.setServer("creative");
+        } else if (context < 30) {
+            builder.setWorld("world_nether");
+        }
+
+        return builder.build();
+    }
+
+    private final List<Group> groups;
+    private final User user;
+
+    private HolderGraph(List<Group> groups, User user) {
+        this.groups = groups;
+        this.user = user;
+    }
+
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    public User getUser() {
+        return user;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import me.lucko.luckperms.api.LocalizedNode;
+import me.lucko.luckperms.benchmarks.plugin.BenchmarkPlugin;
+import me.lucko.luckperms.common.buffers.Cache;
+import me.lucko.luckperms.common.model.User;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Measures inheritance resolution when many threads resolve the same holders at
+ * once, as happens when async tasks calculate data for several users.
+ *
+ * <p>Each resolution reads the {@link Cache}s held by every holder in the tree, so
+ * also compares {@link Cache} against the previous implementation, which took a
+ * read lock on every get.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2G")
+public class InheritanceContentionBenchmark {
+    private static final long SEED = 42L;
+
+    @Param({"5", "50"})
+    public int parents;
+
+    private BenchmarkPlugin plugin;
+    private User user;
+
+    private Cache<Object> cache;
+    private LockingCache<Object> lockingCache;
+
+    @Setup
+    public void setup() {
+        plugin = new BenchmarkPlugin();
+        user = HolderGraph.generate(plugin, SEED, 100, parents).getUser();
+
+        Object value = new Object();
+        cache = new Cache<Object>() {
+            @Override
+            protected Object supply() {
+                return value;
+            }
+        };
+        lockingCache = new LockingCache<Object>() {
+            @Override
+            protected Object supply() {
+                return value;
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        plugin.shutdown();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<LocalizedNode> resolveInheritances8() {
+        return user.resolveInheritances(HolderGraph.CONTEXTS);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public List<LocalizedNode> resolveInheritances16() {
+        return user.resolveInheritances(HolderGraph.CONTEXTS);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public List<LocalizedNode> resolveInheritances32() {
+        return user.resolveInheritances(HolderGraph.CONTEXTS);
+    }
+
+    @Benchmark
+    @Threads(32)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object cacheGet() {
+        return cache.get();
+    }
+
+    @Benchmark
+    @Threads(32)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object lockingCacheGet() {
+        return lockingCache.get();
+    }
+
+    /**
+     * The previous {@link Cache} implementation, which takes a read lock on every get.
+     */
+    private abstract static class LockingCache<T> {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private T cached = null;
+
+        protected abstract T supply();
+
+        public final T get() {
+            lock.readLock().lock();
+            try {
+                if (cached != null) {
+                    return cached;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (cached != null) {
+                    return cached;
+                }
+
+                cached = supply();
+                return cached;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
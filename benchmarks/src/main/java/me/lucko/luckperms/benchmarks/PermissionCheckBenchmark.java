@@ -0,0 +1,195 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import me.lucko.luckperms.api.Tristate;
+import me.lucko.luckperms.benchmarks.plugin.BenchmarkPlugin;
+import me.lucko.luckperms.common.caching.type.PermissionCache;
+import me.lucko.luckperms.common.verbose.CheckOrigin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a single permission check against a users
+ * {@link PermissionCache}, as made by the platform on each hasPermission call.
+ *
+ * <p>Run with {@code -prof gc} to see the allocation rate per check.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2G")
+public class PermissionCheckBenchmark {
+    private static final long SEED = 42L;
+
+    // sizes must be powers of two, see #next
+    private static final int CACHED_CHECKS = 1 << 10;
+    private static final int UNCACHED_CHECKS = 1 << 18;
+    private static final int MIXED_CASE_CHECKS = 1 << 4;
+    private static final int BATCH_CHECKS = 16;
+
+    @Param({"100", "1000", "5000"})
+    public int nodesPerGroup;
+
+    @Param({"5", "50"})
+    public int parents;
+
+    private BenchmarkPlugin plugin;
+    private PermissionCache data;
+
+    // permissions which have already been looked up, so hit the lookup cache
+    private String[] cached;
+
+    // a small number of mixed case constants, like the ones plugins check against
+    private String[] mixedCase;
+
+    // unique permissions which always miss the lookup cache, and have to be passed to the processors
+    private String[] uncached;
+
+    // a batch of permissions checked together, like the ones a scoreboard plugin checks each tick
+    private String[] batch;
+    private Tristate[] batchResults;
+
+    private int cursor = 0;
+
+    @Setup
+    public void setup() {
+        plugin = new BenchmarkPlugin();
+        HolderGraph graph = HolderGraph.generate(plugin, SEED, nodesPerGroup, parents);
+        data = graph.getUser().getCachedData().getPermissionData(HolderGraph.CONTEXTS);
+
+        List<String> exact = new ArrayList<>();
+        List<String> wildcards = new ArrayList<>();
+        for (Map.Entry<String, Boolean> e : data.getImmutableBacking().entrySet()) {
+            String permission = e.getKey();
+            if (permission.startsWith("r=")) {
+                continue;
+            }
+
+            if (permission.endsWith(".*")) {
+                wildcards.add(permission.substring(0, permission.length() - 1));
+            } else {
+                exact.add(permission);
+            }
+        }
+
+        Random random = new Random(SEED);
+
+        cached = new String[CACHED_CHECKS];
+        for (int i = 0; i < cached.length; i++) {
+            // 3 in 4 checks are for exact matches, the rest are granted by a wildcard
+            if (wildcards.isEmpty() || random.nextInt(4) != 0) {
+                cached[i] = exact.get(random.nextInt(exact.size()));
+            } else {
+                cached[i] = wildcards.get(random.nextInt(wildcards.size())) + "child" + random.nextInt(10);
+            }
+            data.getPermissionValue(cached[i], CheckOrigin.INTERNAL);
+        }
+
+        mixedCase = new String[MIXED_CASE_CHECKS];
+        for (int i = 0; i < mixedCase.length; i++) {
+            mixedCase[i] = capitalise(exact.get(random.nextInt(exact.size())));
+            data.getPermissionValue(mixedCase[i], CheckOrigin.INTERNAL);
+        }
+
+        batch = Arrays.copyOf(cached, BATCH_CHECKS);
+        batchResults = new Tristate[BATCH_CHECKS];
+
+        uncached = new String[UNCACHED_CHECKS];
+        for (int i = 0; i < uncached.length; i++) {
+            // half are granted by a wildcard, the rest are undefined
+            if (!wildcards.isEmpty() && (i & 1) == 0) {
+                uncached[i] = wildcards.get(random.nextInt(wildcards.size())) + "uncached" + i;
+            } else {
+                uncached[i] = "unknown.plugin" + (i & 63) + ".node" + i;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        plugin.shutdown();
+    }
+
+    private static String capitalise(String permission) {
+        StringBuilder sb = new StringBuilder(permission.length());
+        boolean upper = true;
+        for (int i = 0; i < permission.length(); i++) {
+            char c = permission.charAt(i);
+            sb.append(upper ? Character.toUpperCase(c) : c);
+            upper = c == '.';
+        }
+        return sb.toString();
+    }
+
+    private String next(String[] permissions) {
+        cursor = (cursor + 1) & (permissions.length - 1);
+        return permissions[cursor];
+    }
+
+    @Benchmark
+    public Tristate checkCached() {
+        return data.getPermissionValue(next(cached), CheckOrigin.PLATFORM_PERMISSION_CHECK);
+    }
+
+    @Benchmark
+    public Tristate checkCachedMixedCase() {
+        return data.getPermissionValue(next(mixedCase), CheckOrigin.PLATFORM_PERMISSION_CHECK);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_CHECKS)
+    public Tristate[] checkCachedBatch() {
+        data.getPermissionValues(batch, batchResults, 0, CheckOrigin.API);
+        return batchResults;
+    }
+
+    @Benchmark
+    public Tristate checkUncached() {
+        return data.getPermissionValue(next(uncached), CheckOrigin.PLATFORM_PERMISSION_CHECK);
+    }
+}
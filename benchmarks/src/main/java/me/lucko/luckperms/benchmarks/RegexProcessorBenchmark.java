@@ -0,0 +1,157 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import me.lucko.luckperms.api.Tristate;
+import me.lucko.luckperms.common.processors.PermissionProcessor;
+import me.lucko.luckperms.common.processors.RegexProcessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the {@link RegexProcessor}, which combines patterns into a single
+ * matcher, against testing each pattern in turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegexProcessorBenchmark {
+    private static final long SEED = 42L;
+
+    // must be a power of two, see #next
+    private static final int CHECKS = 1 << 10;
+
+    @Param({"10", "50", "200"})
+    public int patterns;
+
+    private PermissionProcessor combined;
+    private PermissionProcessor perPattern;
+
+    private String[] checks;
+    private int cursor = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SEED);
+
+        Map<String, Boolean> backing = new LinkedHashMap<>();
+        for (int i = 0; i < patterns; i++) {
+            backing.put("r=plugin" + i + "\\.(command|feature)" + i + "\\.[a-z]+", random.nextBoolean());
+        }
+
+        // a few non regex entries, which both processors should skip
+        backing.put("plugin.command.help", true);
+        backing.put("plugin.*", true);
+
+        combined = new RegexProcessor();
+        combined.updateBacking(backing);
+
+        perPattern = new PerPatternRegexProcessor();
+        perPattern.updateBacking(backing);
+
+        checks = new String[CHECKS];
+        for (int i = 0; i < checks.length; i++) {
+            int n = random.nextInt(patterns);
+
+            // half of the checks match one of the patterns, the rest match none
+            if (random.nextBoolean()) {
+                checks[i] = "plugin" + n + ".command" + n + ".run";
+            } else {
+                checks[i] = "plugin" + n + ".other" + n + ".run";
+            }
+        }
+    }
+
+    private String next() {
+        cursor = (cursor + 1) & (CHECKS - 1);
+        return checks[cursor];
+    }
+
+    @Benchmark
+    public Tristate combined() {
+        return combined.hasPermission(next());
+    }
+
+    @Benchmark
+    public Tristate perPattern() {
+        return perPattern.hasPermission(next());
+    }
+
+    /**
+     * The previous regex processor implementation, which tests each pattern in turn.
+     */
+    private static final class PerPatternRegexProcessor implements PermissionProcessor {
+        private final Map<Pattern, Boolean> regexPermissions = new ConcurrentHashMap<>();
+
+        @Override
+        public Tristate hasPermission(String permission) {
+            for (Map.Entry<Pattern, Boolean> e : regexPermissions.entrySet()) {
+                if (e.getKey().matcher(permission).matches()) {
+                    return Tristate.fromBoolean(e.getValue());
+                }
+            }
+
+            return Tristate.UNDEFINED;
+        }
+
+        @Override
+        public void updateBacking(Map<String, Boolean> map) {
+            regexPermissions.clear();
+            for (Map.Entry<String, Boolean> e : map.entrySet()) {
+                if (!e.getKey().startsWith("r=") && !e.getKey().startsWith("R=")) {
+                    continue;
+                }
+
+                regexPermissions.put(Pattern.compile(e.getKey().substring(2)), e.getValue());
+            }
+        }
+
+        @Override
+        public PermissionProcessor copy() {
+            return new PerPatternRegexProcessor();
+        }
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks.plugin;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.api.platform.PlatformType;
+import me.lucko.luckperms.common.actionlog.LogDispatcher;
+import me.lucko.luckperms.common.api.ApiProvider;
+import me.lucko.luckperms.common.buffers.BufferedRequest;
+import me.lucko.luckperms.common.buffers.UpdateTaskBuffer;
+import me.lucko.luckperms.common.caching.handlers.CachedStateManager;
+import me.lucko.luckperms.common.calculators.CalculatorFactory;
+import me.lucko.luckperms.common.commands.CommandManager;
+import me.lucko.luckperms.common.commands.sender.Sender;
+import me.lucko.luckperms.common.config.AbstractConfiguration;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.contexts.ContextManager;
+import me.lucko.luckperms.common.contexts.LuckPermsCalculator;
+import me.lucko.luckperms.common.dependencies.DependencyManager;
+import me.lucko.luckperms.common.locale.LocaleManager;
+import me.lucko.luckperms.common.locale.NoopLocaleManager;
+import me.lucko.luckperms.common.logging.Logger;
+import me.lucko.luckperms.common.managers.GenericGroupManager;
+import me.lucko.luckperms.common.managers.GenericTrackManager;
+import me.lucko.luckperms.common.managers.GenericUserManager;
+import me.lucko.luckperms.common.managers.GroupManager;
+import me.lucko.luckperms.common.managers.TrackManager;
+import me.lucko.luckperms.common.managers.UserManager;
+import me.lucko.luckperms.common.messaging.ExtendedMessagingService;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.storage.Storage;
+import me.lucko.luckperms.common.storage.dao.file.FileWatcher;
+import me.lucko.luckperms.common.treeview.PermissionVault;
+import me.lucko.luckperms.common.utils.UuidCache;
+import me.lucko.luckperms.common.verbose.VerboseHandler;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * A minimal, platform-less {@link LuckPermsPlugin} used to drive the
+ * permission check pipeline from benchmarks.
+ *
+ * <p>Data is only held in memory, there are never any online players, and
+ * the only sender is the console, which writes to the logger.</p>
+ */
+public class BenchmarkPlugin implements LuckPermsPlugin {
+    private static final String VERSION = "benchmark";
+
+    private final long startTime = System.currentTimeMillis();
+    private final BenchmarkSchedulerAdapter scheduler = new BenchmarkSchedulerAdapter();
+    private final java.util.logging.Logger logger = java.util.logging.Logger.getLogger("LuckPerms");
+    private final Logger log = new JavaLogger(logger);
+
+    private final LuckPermsConfiguration configuration;
+    private final UserManager userManager;
+    private final GroupManager groupManager;
+    private final TrackManager trackManager;
+    private final CachedStateManager cachedStateManager;
+    private final CalculatorFactory calculatorFactory;
+    private final VerboseHandler verboseHandler;
+    private final PermissionVault permissionVault;
+    private final ApiProvider apiProvider;
+    private final LocaleManager localeManager;
+    private final BenchmarkSenderFactory senderFactory;
+    private final ContextManager<User> contextManager;
+    private final UuidCache uuidCache;
+    private final LogDispatcher logDispatcher;
+    private final Storage storage;
+    private final CommandManager commandManager;
+    private final UpdateTaskBuffer updateTaskBuffer;
+    private DependencyManager dependencyManager;
+
+    public BenchmarkPlugin() {
+        // the config is never initialised, as there is no file to read. all keys take their default value
+        this.configuration = new AbstractConfiguration(this, new DefaultConfigurationAdapter(this));
+        this.userManager = new GenericUserManager(this);
+        this.groupManager = new GenericGroupManager(this);
+        this.trackManager = new GenericTrackManager(this);
+        this.cachedStateManager = new CachedStateManager();
+        this.calculatorFactory = new BenchmarkCalculatorFactory(this);
+        this.verboseHandler = new VerboseHandler(scheduler.daemon(), VERSION);
+        this.permissionVault = new PermissionVault(scheduler.daemon());
+        this.localeManager = new NoopLocaleManager();
+        this.senderFactory = new BenchmarkSenderFactory(this);
+        this.uuidCache = new UuidCache(this);
+        this.logDispatcher = new LogDispatcher(this);
+        this.updateTaskBuffer = new UpdateTaskBuffer(this);
+
+        // contexts are usually passed explicitly in benchmarks, so only the static calculator is registered
+        this.contextManager = new BenchmarkContextManager(this);
+        this.contextManager.registerStaticCalculator(new LuckPermsCalculator(configuration));
+
+        this.storage = new BenchmarkStorage(this);
+        this.storage.init();
+
+        // must be created last, as they wrap the other components
+        this.commandManager = new CommandManager(this);
+        this.apiProvider = new ApiProvider(this);
+    }
+
+    public void shutdown() {
+        storage.shutdown();
+        verboseHandler.shutdown();
+        permissionVault.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Override
+    public UserManager getUserManager() {
+        return userManager;
+    }
+
+    @Override
+    public GroupManager getGroupManager() {
+        return groupManager;
+    }
+
+    @Override
+    public TrackManager getTrackManager() {
+        return trackManager;
+    }
+
+    @Override
+    public LuckPermsConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public Storage getStorage() {
+        return storage;
+    }
+
+    @Override
+    public Optional<ExtendedMessagingService> getMessagingService() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Logger getLog() {
+        return log;
+    }
+
+    @Override
+    public UuidCache getUuidCache() {
+        return uuidCache;
+    }
+
+    @Override
+    public ApiProvider getApiProvider() {
+        return apiProvider;
+    }
+
+    @Override
+    public CommandManager getCommandManager() {
+        return commandManager;
+    }
+
+    @Override
+    public LocaleManager getLocaleManager() {
+        return localeManager;
+    }
+
+    @Override
+    public synchronized DependencyManager getDependencyManager() {
+        // created lazily, as dependencies are never loaded by benchmarks and the manager
+        // can't be initialised on newer jvms
+        if (dependencyManager == null) {
+            dependencyManager = new DependencyManager(this);
+        }
+        return dependencyManager;
+    }
+
+    @Override
+    public ContextManager<User> getContextManager() {
+        return contextManager;
+    }
+
+    @Override
+    public CachedStateManager getCachedStateManager() {
+        return cachedStateManager;
+    }
+
+    @Override
+    public CalculatorFactory getCalculatorFactory() {
+        return calculatorFactory;
+    }
+
+    @Override
+    public VerboseHandler getVerboseHandler() {
+        return verboseHandler;
+    }
+
+    @Override
+    public PermissionVault getPermissionVault() {
+        return permissionVault;
+    }
+
+    @Override
+    public LogDispatcher getLogDispatcher() {
+        return logDispatcher;
+    }
+
+    @Override
+    public BenchmarkSchedulerAdapter getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public Optional<FileWatcher> getFileWatcher() {
+        return Optional.empty();
+    }
+
+    @Override
+    public String getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public PlatformType getServerType() {
+        return PlatformType.BUKKIT;
+    }
+
+    @Override
+    public String getServerBrand() {
+        return "benchmark";
+    }
+
+    @Override
+    public String getServerVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public long getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public File getDataDirectory() {
+        return new File(System.getProperty("java.io.tmpdir"), "luckperms-benchmark");
+    }
+
+    @Override
+    public InputStream getResourceStream(String path) {
+        return getClass().getClassLoader().getResourceAsStream(path);
+    }
+
+    @Override
+    public Object getPlayer(User user) {
+        return null;
+    }
+
+    @Override
+    public Optional<UUID> lookupUuid(String username) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Contexts getContextForUser(User user) {
+        return null;
+    }
+
+    @Override
+    public int getPlayerCount() {
+        return 0;
+    }
+
+    @Override
+    public Stream<String> getPlayerList() {
+        return Stream.empty();
+    }
+
+    @Override
+    public Stream<UUID> getOnlinePlayers() {
+        return Stream.empty();
+    }
+
+    @Override
+    public boolean isPlayerOnline(UUID external) {
+        return false;
+    }
+
+    @Override
+    public Stream<Sender> getOnlineSenders() {
+        return Stream.of(getConsoleSender());
+    }
+
+    @Override
+    public Sender getConsoleSender() {
+        return senderFactory.wrap(logger);
+    }
+
+    @Override
+    public Set<UUID> getUniqueConnections() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public BufferedRequest<Void> getUpdateTaskBuffer() {
+        return updateTaskBuffer;
+    }
+
+    private static final class JavaLogger implements Logger {
+        private final java.util.logging.Logger logger;
+
+        private JavaLogger(java.util.logging.Logger logger) {
+            this.logger = logger;
+        }
+
+        @Override
+        public void info(String s) {
+            logger.info(s);
+        }
+
+        @Override
+        public void warn(String s) {
+            logger.warning(s);
+        }
+
+        @Override
+        public void severe(String s) {
+            logger.severe(s);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks.plugin;
+
+import me.lucko.luckperms.common.plugin.SchedulerAdapter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A {@link SchedulerAdapter} for benchmarks.
+ *
+ * <p>Scheduled tasks are discarded, so buffered holder refreshes never run
+ * in the background and skew the measurements. Long running handlers (the
+ * permission vault and verbose handler) are given daemon threads instead.</p>
+ */
+public class BenchmarkSchedulerAdapter implements SchedulerAdapter {
+    private static final Executor DISCARD = r -> {};
+
+    private final ExecutorService daemonPool = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "luckperms-benchmark-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Gets an executor which runs tasks on daemon threads
+     *
+     * @return the daemon executor
+     */
+    public Executor daemon() {
+        return daemonPool;
+    }
+
+    @Override
+    public Executor async() {
+        return DISCARD;
+    }
+
+    @Override
+    public Executor sync() {
+        return DISCARD;
+    }
+
+    @Override
+    public void doAsync(Runnable runnable) {
+
+    }
+
+    @Override
+    public void doSync(Runnable runnable) {
+
+    }
+
+    @Override
+    public void asyncRepeating(Runnable runnable, long intervalTicks) {
+
+    }
+
+    @Override
+    public void syncRepeating(Runnable runnable, long intervalTicks) {
+
+    }
+
+    @Override
+    public void asyncLater(Runnable runnable, long delayTicks) {
+
+    }
+
+    @Override
+    public void syncLater(Runnable runnable, long delayTicks) {
+
+    }
+
+    @Override
+    public void shutdown() {
+        daemonPool.shutdownNow();
+    }
+}
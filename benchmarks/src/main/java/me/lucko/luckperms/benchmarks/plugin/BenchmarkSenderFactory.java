@@ -0,0 +1,79 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.benchmarks.plugin;
+
+import me.lucko.luckperms.api.Tristate;
+import me.lucko.luckperms.common.commands.sender.SenderFactory;
+import me.lucko.luckperms.common.commands.utils.CommandUtils;
+import me.lucko.luckperms.common.constants.Constants;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.utils.TextUtils;
+
+import net.kyori.text.Component;
+
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * A sender factory for benchmarks. The only sender is the console, which
+ * writes messages to the plugins logger.
+ */
+public class BenchmarkSenderFactory extends SenderFactory<Logger> {
+    public BenchmarkSenderFactory(LuckPermsPlugin plugin) {
+        super(plugin);
+    }
+
+    @Override
+    protected String getName(Logger logger) {
+        return Constants.CONSOLE_NAME;
+    }
+
+    @Override
+    protected UUID getUuid(Logger logger) {
+        return Constants.CONSOLE_UUID;
+    }
+
+    @Override
+    protected void sendMessage(Logger logger, String s) {
+        logger.info(CommandUtils.stripColor(s));
+    }
+
+    @Override
+    protected void sendMessage(Logger logger, Component message) {
+        sendMessage(logger, TextUtils.toLegacy(message));
+    }
+
+    @Override
+    protected Tristate getPermissionValue(Logger logger, String node) {
+        return Tristate.TRUE;
+    }
+
+    @Override
+    protected boolean hasPermission(Logger logger, String node) {
+        return true;
+    }
+}
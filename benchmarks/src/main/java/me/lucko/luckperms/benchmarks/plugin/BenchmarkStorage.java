@@ -0,0 +1,222 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.benchmarks.plugin;
+
+import lombok.Getter;
+
+import me.lucko.luckperms.api.HeldPermission;
+import me.lucko.luckperms.api.LogEntry;
+import me.lucko.luckperms.api.event.cause.CreationCause;
+import me.lucko.luckperms.api.event.cause.DeletionCause;
+import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.api.delegates.model.ApiStorage;
+import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.Track;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.references.UserIdentifier;
+import me.lucko.luckperms.common.storage.Storage;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link Storage} which keeps data only in the plugins managers.
+ *
+ * <p>Nothing is ever persisted, so loading an object which isn't already
+ * loaded creates it empty, and saves always succeed. Operations complete
+ * immediately, as the benchmark scheduler never runs async tasks.</p>
+ */
+public class BenchmarkStorage implements Storage {
+    private final LuckPermsPlugin plugin;
+
+    @Getter
+    private final ApiStorage delegate;
+
+    public BenchmarkStorage(LuckPermsPlugin plugin) {
+        this.plugin = plugin;
+        this.delegate = new ApiStorage(plugin, this);
+    }
+
+    @Override
+    public String getName() {
+        return "Benchmark";
+    }
+
+    @Override
+    public Storage noBuffer() {
+        return this;
+    }
+
+    @Override
+    public void init() {
+
+    }
+
+    @Override
+    public void shutdown() {
+
+    }
+
+    @Override
+    public Map<String, String> getMeta() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> logAction(LogEntry entry) {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Log> getLog() {
+        return CompletableFuture.completedFuture(Log.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> applyBulkUpdate(BulkUpdate bulkUpdate) {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> loadUser(UUID uuid, String username) {
+        User user = plugin.getUserManager().getOrMake(UserIdentifier.of(uuid, username));
+        plugin.getUserManager().giveDefaultIfNeeded(user, false);
+        plugin.getApiProvider().getEventFactory().handleUserLoad(user);
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveUser(User user) {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Set<UUID>> getUniqueUsers() {
+        return CompletableFuture.completedFuture(Collections.emptySet());
+    }
+
+    @Override
+    public CompletableFuture<List<HeldPermission<UUID>>> getUsersWithPermission(String permission) {
+        return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createAndLoadGroup(String name, CreationCause cause) {
+        Group group = plugin.getGroupManager().getOrMake(name);
+        plugin.getApiProvider().getEventFactory().handleGroupCreate(group, cause);
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> loadGroup(String name) {
+        Group group = plugin.getGroupManager().getIfLoaded(name);
+        if (group == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        plugin.getApiProvider().getEventFactory().handleGroupLoad(group);
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> loadAllGroups() {
+        plugin.getApiProvider().getEventFactory().handleGroupLoadAll();
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveGroup(Group group) {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteGroup(Group group, DeletionCause cause) {
+        plugin.getApiProvider().getEventFactory().handleGroupDelete(group, cause);
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<List<HeldPermission<String>>> getGroupsWithPermission(String permission) {
+        return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createAndLoadTrack(String name, CreationCause cause) {
+        Track track = plugin.getTrackManager().getOrMake(name);
+        plugin.getApiProvider().getEventFactory().handleTrackCreate(track, cause);
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> loadTrack(String name) {
+        Track track = plugin.getTrackManager().getIfLoaded(name);
+        if (track == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        plugin.getApiProvider().getEventFactory().handleTrackLoad(track);
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> loadAllTracks() {
+        plugin.getApiProvider().getEventFactory().handleTrackLoadAll();
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveTrack(Track track) {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteTrack(Track track, DeletionCause cause) {
+        plugin.getApiProvider().getEventFactory().handleTrackDelete(track, cause);
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveUUIDData(UUID uuid, String username) {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<UUID> getUUID(String username) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<String> getName(UUID uuid) {
+        return CompletableFuture.completedFuture(null);
+    }
+}
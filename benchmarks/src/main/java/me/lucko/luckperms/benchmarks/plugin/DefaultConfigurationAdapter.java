@@ -0,0 +1,89 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks.plugin;
+
+import me.lucko.luckperms.common.config.ConfigurationAdapter;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ConfigurationAdapter} which has no backing file, and just returns
+ * the default value for every key.
+ */
+public class DefaultConfigurationAdapter implements ConfigurationAdapter {
+    private final LuckPermsPlugin plugin;
+
+    public DefaultConfigurationAdapter(LuckPermsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public LuckPermsPlugin getPlugin() {
+        return plugin;
+    }
+
+    @Override
+    public void init() {
+
+    }
+
+    @Override
+    public boolean contains(String path) {
+        return false;
+    }
+
+    @Override
+    public String getString(String path, String def) {
+        return def;
+    }
+
+    @Override
+    public int getInt(String path, int def) {
+        return def;
+    }
+
+    @Override
+    public boolean getBoolean(String path, boolean def) {
+        return def;
+    }
+
+    @Override
+    public List<String> getList(String path, List<String> def) {
+        return def;
+    }
+
+    @Override
+    public List<String> getObjectList(String path, List<String> def) {
+        return def;
+    }
+
+    @Override
+    public Map<String, String> getMap(String path, Map<String, String> def) {
+        return def;
+    }
+}
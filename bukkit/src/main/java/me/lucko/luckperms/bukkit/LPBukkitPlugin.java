@@ -411,6 +411,9 @@ public class LPBukkitPlugin extends JavaPlugin implements LuckPermsPlugin {
             Map<String, Boolean> backing = user.getCachedData().getPermissionData(contextManager.getApplicableContexts(player)).getImmutableBacking();
             boolean op = Optional.ofNullable(backing.get("luckperms.autoop")).orElse(false);
             player.setOp(op);
+
+            // the op flag is part of the players contexts
+            contextManager.invalidateCache(player);
         }
     }
 
@@ -70,7 +70,7 @@ public class BukkitCalculatorFactory extends AbstractCalculatorFactory {
             processors.add(new DefaultsProcessor(contexts.isOp(), plugin.getDefaultsProvider()));
         }
 
-        return registerCalculator(new PermissionCalculator(plugin, metadata, processors.build()));
+        return registerCalculator(new PermissionCalculator(plugin, metadata, processors.build(), getSnapshotPool(), contexts));
     }
 
     @Override
@@ -50,4 +50,10 @@ public class WorldCalculator implements ContextCalculator<Player> {
 
         return accumulator;
     }
+
+    @Override
+    public boolean isPushBased() {
+        // invalidated by BukkitPlatformListener when the player changes world
+        return true;
+    }
 }
@@ -223,7 +223,12 @@ public class LPPermissible extends PermissibleBase {
 
     @Override
     public void recalculatePermissions() {
-        // do nothing
+        // called by the server whenever the players op status changes. the op flag is baked into
+        // the players contexts, so the cached lookup has to be dropped.
+        // (plugin is still null when this is called from the super constructor)
+        if (plugin != null) {
+            plugin.getContextManager().invalidateCache(player);
+        }
     }
 
     @Override
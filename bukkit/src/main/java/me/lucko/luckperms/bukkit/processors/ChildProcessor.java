@@ -32,8 +32,11 @@ import com.google.common.collect.Maps;
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.common.processors.PermissionProcessor;
 
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 /**
  * Permission Processor for Bukkits "child" permission system.
@@ -59,4 +62,24 @@ public class ChildProcessor implements PermissionProcessor {
             }
         }
     }
+
+    @Override
+    public PermissionProcessor copy() {
+        return new ChildProcessor(provider);
+    }
+
+    @Override
+    public Predicate<String> getAffectedPermissions(Set<String> changedKeys) {
+        // the changed keys may have been set to either value, so include the children of both
+        Set<String> affected = new HashSet<>();
+        for (String key : changedKeys) {
+            for (Boolean value : new Boolean[]{Boolean.TRUE, Boolean.FALSE}) {
+                Map<String, Boolean> children = provider.getPermissions().get(Maps.immutableEntry(key, value));
+                if (children != null) {
+                    affected.addAll(children.keySet());
+                }
+            }
+        }
+        return affected::contains;
+    }
 }
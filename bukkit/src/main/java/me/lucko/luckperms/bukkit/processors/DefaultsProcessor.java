@@ -34,6 +34,8 @@ import org.bukkit.Bukkit;
 import org.bukkit.permissions.Permission;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * Permission Processor for Bukkits "default" permission system.
@@ -58,4 +60,14 @@ public class DefaultsProcessor implements PermissionProcessor {
     public void updateBacking(Map<String, Boolean> map) {
         // Do nothing, this doesn't use the backing
     }
+
+    @Override
+    public PermissionProcessor copy() {
+        return this;
+    }
+
+    @Override
+    public Predicate<String> getAffectedPermissions(Set<String> changedKeys) {
+        return permission -> false;
+    }
 }
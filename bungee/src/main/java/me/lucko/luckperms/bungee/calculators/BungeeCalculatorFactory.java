@@ -60,7 +60,7 @@ public class BungeeCalculatorFactory extends AbstractCalculatorFactory {
             processors.add(new WildcardProcessor());
         }
 
-        return registerCalculator(new PermissionCalculator(plugin, metadata, processors.build()));
+        return registerCalculator(new PermissionCalculator(plugin, metadata, processors.build(), getSnapshotPool(), contexts));
     }
 
     @Override
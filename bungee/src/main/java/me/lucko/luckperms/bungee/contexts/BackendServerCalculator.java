@@ -54,4 +54,10 @@ public class BackendServerCalculator implements ContextCalculator<ProxiedPlayer>
 
         return accumulator;
     }
+
+    @Override
+    public boolean isPushBased() {
+        // invalidated by BungeeConnectionListener when the player switches server
+        return true;
+    }
 }
@@ -42,4 +42,10 @@ public class RedisBungeeCalculator implements StaticContextCalculator {
         }
         return accumulator;
     }
+
+    @Override
+    public boolean isPushBased() {
+        // the proxy id never changes
+        return true;
+    }
 }
@@ -39,6 +39,7 @@ import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.event.LoginEvent;
 import net.md_5.bungee.api.event.PlayerDisconnectEvent;
 import net.md_5.bungee.api.event.PostLoginEvent;
+import net.md_5.bungee.api.event.ServerSwitchEvent;
 import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.event.EventHandler;
 import net.md_5.bungee.event.EventPriority;
@@ -131,6 +132,12 @@ public class BungeeConnectionListener implements Listener {
         }
     }
 
+    // The backend server context is push-based, so needs to be invalidated when the player switches server
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onServerSwitch(ServerSwitchEvent e) {
+        plugin.getContextManager().invalidateCache(e.getPlayer());
+    }
+
     // Wait until the last priority to unload, so plugins can still perform permission checks on this event
     @EventHandler(priority = EventPriority.HIGHEST)
     public void onPlayerQuit(PlayerDisconnectEvent e) {
@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.api;
 
 import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.NonNull;
 
 import me.lucko.luckperms.api.LPConfiguration;
 import me.lucko.luckperms.api.LogEntry;
@@ -34,7 +35,10 @@ import me.lucko.luckperms.api.LuckPermsApi;
 import me.lucko.luckperms.api.MessagingService;
 import me.lucko.luckperms.api.NodeFactory;
 import me.lucko.luckperms.api.Storage;
+import me.lucko.luckperms.api.User;
 import me.lucko.luckperms.api.UuidCache;
+import me.lucko.luckperms.api.caching.BulkPermissionResult;
+import me.lucko.luckperms.api.caching.PermissionCheckMetrics;
 import me.lucko.luckperms.api.context.ContextManager;
 import me.lucko.luckperms.api.event.EventBus;
 import me.lucko.luckperms.api.manager.GroupManager;
@@ -47,6 +51,7 @@ import me.lucko.luckperms.common.api.delegates.manager.ApiContextManager;
 import me.lucko.luckperms.common.api.delegates.manager.ApiGroupManager;
 import me.lucko.luckperms.common.api.delegates.manager.ApiTrackManager;
 import me.lucko.luckperms.common.api.delegates.manager.ApiUserManager;
+import me.lucko.luckperms.common.api.delegates.misc.ApiBulkPermissionResult;
 import me.lucko.luckperms.common.api.delegates.misc.ApiMetaStackFactory;
 import me.lucko.luckperms.common.api.delegates.misc.ApiNodeFactory;
 import me.lucko.luckperms.common.api.delegates.misc.ApiPlatformInfo;
@@ -54,6 +59,7 @@ import me.lucko.luckperms.common.event.EventFactory;
 import me.lucko.luckperms.common.event.LuckPermsEventBus;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
@@ -161,4 +167,14 @@ public class ApiProvider implements LuckPermsApi {
     public LogEntry.Builder newLogEntryBuilder() {
         return ExtendedLogEntry.build();
     }
+
+    @Override
+    public BulkPermissionResult checkPermissions(@NonNull List<? extends User> users, @NonNull List<String> permissions) {
+        return ApiBulkPermissionResult.check(plugin, users, permissions);
+    }
+
+    @Override
+    public PermissionCheckMetrics getPermissionCheckMetrics() {
+        return plugin.getCalculatorFactory().getCheckMetrics().snapshot();
+    }
 }
@@ -106,4 +106,9 @@ public class ApiContextManager implements ContextManager {
     public void invalidateCache(@NonNull Object subject) {
         handle.invalidateCache(checkType(subject));
     }
+
+    @Override
+    public void invalidateCaches() {
+        handle.invalidateCaches();
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.api.delegates.misc;
+
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.api.Tristate;
+import me.lucko.luckperms.api.User;
+import me.lucko.luckperms.api.caching.BulkPermissionResult;
+import me.lucko.luckperms.common.api.delegates.model.ApiUser;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.verbose.CheckOrigin;
+
+import java.util.List;
+
+/**
+ * Holds the results of a bulk permission check in a single flat array, with a row for each user.
+ */
+public final class ApiBulkPermissionResult implements BulkPermissionResult {
+
+    /**
+     * Checks the given permissions for each of the given users.
+     *
+     * @param plugin the plugin instance
+     * @param users the users to check
+     * @param permissions the permissions to check
+     * @return the results
+     */
+    public static ApiBulkPermissionResult check(LuckPermsPlugin plugin, List<? extends User> users, List<String> permissions) {
+        List<User> userList = ImmutableList.copyOf(users);
+        List<String> permissionList = ImmutableList.copyOf(permissions);
+
+        // lowercase the permissions once for the whole batch, instead of once for each user
+        String[] checked = new String[permissionList.size()];
+        for (int i = 0; i < checked.length; i++) {
+            checked[i] = permissionList.get(i).toLowerCase();
+        }
+
+        Tristate[] results = new Tristate[userList.size() * checked.length];
+        if (checked.length != 0) {
+            for (int i = 0; i < userList.size(); i++) {
+                me.lucko.luckperms.common.model.User user = ApiUser.cast(userList.get(i));
+
+                Contexts contexts = plugin.getContextForUser(user);
+                if (contexts == null) {
+                    contexts = plugin.getContextManager().getStaticContexts();
+                }
+
+                user.getCachedData().getPermissionData(contexts).getPermissionValues(checked, results, i * checked.length, CheckOrigin.API);
+            }
+        }
+
+        return new ApiBulkPermissionResult(userList, permissionList, results);
+    }
+
+    private final List<User> users;
+    private final List<String> permissions;
+    private final Tristate[] results;
+
+    private ApiBulkPermissionResult(List<User> users, List<String> permissions, Tristate[] results) {
+        this.users = users;
+        this.permissions = permissions;
+        this.results = results;
+    }
+
+    @Override
+    public List<User> getUsers() {
+        return users;
+    }
+
+    @Override
+    public List<String> getPermissions() {
+        return permissions;
+    }
+
+    @Override
+    public Tristate getResult(int user, int permission) {
+        if (user < 0 || user >= users.size()) {
+            throw new IndexOutOfBoundsException("user index: " + user);
+        }
+        if (permission < 0 || permission >= permissions.size()) {
+            throw new IndexOutOfBoundsException("permission index: " + permission);
+        }
+        return results[user * permissions.size() + permission];
+    }
+}
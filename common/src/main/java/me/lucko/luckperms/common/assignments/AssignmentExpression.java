@@ -25,20 +25,25 @@
 
 package me.lucko.luckperms.common.assignments;
 
-import com.google.common.collect.ImmutableList;
-
 import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.node.LegacyNodeFactory;
-import me.lucko.luckperms.common.utils.Scripting;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
-
-import javax.script.ScriptEngine;
 
+/**
+ * A boolean expression of permissions, used to decide if an {@link AssignmentRule}
+ * applies to a holder.
+ *
+ * <p>Permissions are written between angle brackets, and combined using the
+ * '&amp;' (and), '|' (or) and '!' (not) operators, and parentheses. The literals
+ * 'true' and 'false' are also accepted.</p>
+ *
+ * <p>The expression is compiled once into a tree of nodes, which is evaluated for
+ * each holder.</p>
+ */
 public class AssignmentExpression {
 
     public static AssignmentExpression compile(String expression) {
@@ -48,107 +53,239 @@ public class AssignmentExpression {
         return new AssignmentExpression(expression);
     }
 
-    private final List<Token> expression;
+    private final String source;
 
-    private AssignmentExpression(String expression) {
-        this.expression = generateExpression(expression);
+    // the compiled expression, or null if the expression could not be parsed
+    private final Expression expression;
+    private final IllegalArgumentException parseError;
+
+    private AssignmentExpression(String source) {
+        this.source = source;
+
+        Expression expression = null;
+        IllegalArgumentException parseError = null;
+        try {
+            expression = new Parser(source).parse();
+        } catch (IllegalArgumentException e) {
+            // invalid expressions are reported each time they are evaluated, as they were when
+            // expressions were evaluated by a script engine
+            parseError = e;
+        }
+
+        this.expression = expression;
+        this.parseError = parseError;
     }
 
     public boolean parse(PermissionHolder holder, Tristate tristate) throws IllegalArgumentException {
-        ScriptEngine engine = Scripting.getScriptEngine();
-        if (engine == null) {
-            throw new NullPointerException("script engine");
+        if (expression == null) {
+            throw new IllegalArgumentException(source, parseError);
         }
+        return expression.evaluate(holder, tristate);
+    }
 
-        Predicate<Node> checker = node -> holder.hasPermission(node) == tristate;
+    @Override
+    public String toString() {
+        return source;
+    }
 
-        String exp = expression.stream().map(t -> t.forExpression(checker)).collect(Collectors.joining())
-                .replace("&", "&&").replace("|", "||");
+    @FunctionalInterface
+    private interface Expression {
+        boolean evaluate(PermissionHolder holder, Tristate tristate);
+    }
 
-        try {
-            String result = engine.eval(exp).toString();
+    private static final class ConstantExpression implements Expression {
+        private static final ConstantExpression TRUE = new ConstantExpression(true);
+        private static final ConstantExpression FALSE = new ConstantExpression(false);
 
-            if (!result.equals("true") && !result.equals("false")) {
-                throw new IllegalArgumentException();
-            }
+        private final boolean value;
 
-            return Boolean.parseBoolean(result);
+        private ConstantExpression(boolean value) {
+            this.value = value;
+        }
 
-        } catch (Throwable t) {
-            throw new IllegalArgumentException(exp, t);
+        @Override
+        public boolean evaluate(PermissionHolder holder, Tristate tristate) {
+            return value;
         }
     }
 
-    private static List<Token> generateExpression(String input) {
-        ImmutableList.Builder<Token> exp = ImmutableList.builder();
+    private static final class PermissionExpression implements Expression {
+        private final Node node;
 
-        while (true) {
-            int start = input.indexOf("<");
-            int end = input.indexOf(">");
-            if (start == -1 || end == -1) {
-                break;
-            }
+        private PermissionExpression(String permission) {
+            this.node = LegacyNodeFactory.fromLegacyString(permission, true);
+        }
 
-            if (start != 0) {
-                Token before = new StringToken(input.substring(0, start));
-                exp.add(before);
-            }
+        @Override
+        public boolean evaluate(PermissionHolder holder, Tristate tristate) {
+            return holder.hasPermission(node) == tristate;
+        }
+    }
 
-            String match = input.substring(start, end + 1);
-            String matchContent = match.substring(1, match.length() - 1);
+    private static final class NotExpression implements Expression {
+        private final Expression expression;
 
-            Token permission = new PermissionToken(matchContent);
-            exp.add(permission);
+        private NotExpression(Expression expression) {
+            this.expression = expression;
+        }
 
-            input = input.substring(end + 1);
+        @Override
+        public boolean evaluate(PermissionHolder holder, Tristate tristate) {
+            return !expression.evaluate(holder, tristate);
         }
+    }
+
+    private static final class AndExpression implements Expression {
+        private final Expression[] expressions;
 
-        if (!input.isEmpty()) {
-            exp.add(new StringToken(input));
+        private AndExpression(List<Expression> expressions) {
+            this.expressions = expressions.toArray(new Expression[expressions.size()]);
         }
 
-        return exp.build();
+        @Override
+        public boolean evaluate(PermissionHolder holder, Tristate tristate) {
+            for (Expression expression : expressions) {
+                if (!expression.evaluate(holder, tristate)) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 
-    private interface Token {
-        String forExpression(Predicate<Node> checker);
+    private static final class OrExpression implements Expression {
+        private final Expression[] expressions;
+
+        private OrExpression(List<Expression> expressions) {
+            this.expressions = expressions.toArray(new Expression[expressions.size()]);
+        }
+
+        @Override
+        public boolean evaluate(PermissionHolder holder, Tristate tristate) {
+            for (Expression expression : expressions) {
+                if (expression.evaluate(holder, tristate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 
-    private static final class StringToken implements Token {
-        private final String string;
+    /**
+     * A recursive descent parser for the expression grammar.
+     *
+     * <pre>
+     * or      := and ('|' and)*
+     * and     := unary ('&amp;' unary)*
+     * unary   := '!' unary | primary
+     * primary := '&lt;' permission '&gt;' | 'true' | 'false' | '(' or ')'
+     * </pre>
+     */
+    private static final class Parser {
+        private final String input;
+        private int position = 0;
+
+        private Parser(String input) {
+            this.input = input;
+        }
 
-        private StringToken(String string) {
-            this.string = string;
+        private Expression parse() {
+            Expression expression = parseOr();
+            skipWhitespace();
+            if (position != input.length()) {
+                throw unexpected();
+            }
+            return expression;
         }
 
-        @Override
-        public String forExpression(Predicate<Node> checker) {
-            return string;
+        private Expression parseOr() {
+            List<Expression> expressions = new ArrayList<>();
+            expressions.add(parseAnd());
+            while (accept('|')) {
+                expressions.add(parseAnd());
+            }
+            return expressions.size() == 1 ? expressions.get(0) : new OrExpression(expressions);
         }
 
-        @Override
-        public String toString() {
-            return string;
+        private Expression parseAnd() {
+            List<Expression> expressions = new ArrayList<>();
+            expressions.add(parseUnary());
+            while (accept('&')) {
+                expressions.add(parseUnary());
+            }
+            return expressions.size() == 1 ? expressions.get(0) : new AndExpression(expressions);
         }
-    }
 
-    private static final class PermissionToken implements Token {
-        private final String permission;
-        private final Node node;
+        private Expression parseUnary() {
+            if (accept('!')) {
+                return new NotExpression(parseUnary());
+            }
+            return parsePrimary();
+        }
 
-        private PermissionToken(String permission) {
-            this.permission = permission;
-            this.node = LegacyNodeFactory.fromLegacyString(permission, true);
+        private Expression parsePrimary() {
+            if (accept('(')) {
+                Expression expression = parseOr();
+                if (!accept(')')) {
+                    throw unexpected();
+                }
+                return expression;
+            }
+
+            if (accept('<')) {
+                int end = input.indexOf('>', position);
+                if (end == -1) {
+                    throw new IllegalArgumentException("Missing '>' in " + input);
+                }
+                String permission = input.substring(position, end);
+                position = end + 1;
+                return new PermissionExpression(permission);
+            }
+
+            if (acceptWord("true")) {
+                return ConstantExpression.TRUE;
+            }
+            if (acceptWord("false")) {
+                return ConstantExpression.FALSE;
+            }
+
+            throw unexpected();
         }
 
-        @Override
-        public String forExpression(Predicate<Node> checker) {
-            return Boolean.toString(checker.test(node));
+        private boolean accept(char c) {
+            skipWhitespace();
+            if (position < input.length() && input.charAt(position) == c) {
+                // '&&' and '||' are not valid operators
+                if ((c == '&' || c == '|') && position + 1 < input.length() && input.charAt(position + 1) == c) {
+                    throw unexpected();
+                }
+                position++;
+                return true;
+            }
+            return false;
         }
 
-        @Override
-        public String toString() {
-            return "<" + permission + ">";
+        private boolean acceptWord(String word) {
+            skipWhitespace();
+            int end = position + word.length();
+            if (input.startsWith(word, position) && (end == input.length() || !Character.isJavaIdentifierPart(input.charAt(end)))) {
+                position = end;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException unexpected() {
+            if (position >= input.length()) {
+                return new IllegalArgumentException("Unexpected end of expression: " + input);
+            }
+            return new IllegalArgumentException("Unexpected character '" + input.charAt(position) + "' at position " + position + " of: " + input);
         }
     }
 }
@@ -28,65 +28,64 @@ package me.lucko.luckperms.common.buffers;
 import lombok.RequiredArgsConstructor;
 
 import java.util.Optional;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Thread-safe caching utility
  *
+ * <p>Reads of a cached value are lock-free. When no value is cached, the calling thread
+ * supplies one, and publishes it unless the cache was invalidated in the meantime. The
+ * supplier may therefore be called by more than one thread at once.</p>
+ *
  * @param <T> the type being stored
  */
 @RequiredArgsConstructor
 public abstract class Cache<T> {
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object lock = new Object();
+
+    private volatile T cached = null;
 
-    private T cached = null;
+    /**
+     * Incremented on each invalidation, to detect values supplied
+     * from state which has since changed. Only modified whilst holding the lock.
+     */
+    private volatile long stamp = 0;
 
     protected abstract T supply();
 
     public final T get() {
         // try to just read from the cached value
-        lock.readLock().lock();
-        try {
-            if (cached != null) {
-                return cached;
-            }
-        } finally {
-            // we have to release the read lock, as it is not possible
-            // to acquire the write lock whilst holding a read lock
-            lock.readLock().unlock();
+        T value = cached;
+        if (value != null) {
+            return value;
         }
 
-        lock.writeLock().lock();
-        try {
-            // Since the lock was unlocked momentarily, we need
-            // to check again for a cached value
-            if (cached != null) {
-                return cached;
-            }
+        // record the current stamp before calling the supplier
+        long stamp = this.stamp;
+        value = supply();
 
-            // call the supplier and set the cached value
-            cached = supply();
-            return cached;
-        } finally {
-            lock.writeLock().unlock();
+        synchronized (lock) {
+            // only publish the value if the cache hasn't been invalidated since the
+            // supplier was called, otherwise it may have been supplied from old state
+            if (this.stamp == stamp) {
+                if (cached == null) {
+                    cached = value;
+                } else {
+                    // another thread got there first
+                    value = cached;
+                }
+            }
         }
+        return value;
     }
 
     public final Optional<T> getIfPresent() {
-        lock.readLock().lock();
-        try {
-            return Optional.ofNullable(cached);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return Optional.ofNullable(cached);
     }
 
     public final void invalidate() {
-        lock.writeLock().lock();
-        try {
+        synchronized (lock) {
+            stamp++;
             cached = null;
-        } finally {
-            lock.writeLock().unlock();
         }
     }
 }
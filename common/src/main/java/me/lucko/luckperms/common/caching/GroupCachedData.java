@@ -25,14 +25,43 @@
 
 package me.lucko.luckperms.common.caching;
 
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.caching.GroupData;
 import me.lucko.luckperms.common.model.Group;
 
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Holds an easily accessible cache of a groups's data in a number of contexts
  */
 public class GroupCachedData extends HolderCachedData<Group> implements GroupData {
 
+    /**
+     * Incremented each time the resolved permissions of this group become out of date, so
+     * permissions resolved concurrently with the change can be detected and discarded
+     */
+    private volatile long resolvedPermissionsStamp = 0;
+
+    /**
+     * The groups resolved permissions, shared between the holders which inherit from it.
+     */
+    private final LoadingCache<Contexts, ResolvedPermissions> resolvedPermissions = Caffeine.newBuilder()
+            .expireAfterAccess(2, TimeUnit.MINUTES)
+            .build(this::resolvePermissions);
+
     public GroupCachedData(Group holder) {
         super(holder);
     }
@@ -41,4 +70,66 @@ public class GroupCachedData extends HolderCachedData<Group> implements GroupDat
     protected String getHolderName() {
         return holder.getName();
     }
+
+    private ResolvedPermissions resolvePermissions(Contexts contexts) {
+        long stamp = resolvedPermissionsStamp;
+
+        Set<String> resolvedGroups = new LinkedHashSet<>();
+        Map<String, Boolean> permissions;
+        if (contexts == Contexts.allowAll()) {
+            permissions = holder.exportNodesAndShorthand(true, resolvedGroups);
+        } else {
+            permissions = holder.exportNodesAndShorthand(contexts, true, resolvedGroups);
+        }
+        return new ResolvedPermissions(stamp, permissions, ImmutableList.copyOf(resolvedGroups));
+    }
+
+    /**
+     * Gets the groups resolved permissions in the given contexts, including those inherited
+     * from its parents.
+     *
+     * <p>The returned instance is shared, and is never modified. Changes to the group or its
+     * parents cause a new instance to be calculated.</p>
+     *
+     * @param contexts the contexts to resolve in
+     * @return the resolved permissions
+     */
+    public ResolvedPermissions getResolvedPermissions(@NonNull Contexts contexts) {
+        ResolvedPermissions ret = resolvedPermissions.get(contexts);
+        //noinspection ConstantConditions
+        if (ret.stamp != resolvedPermissionsStamp) {
+            // resolved from state which changed whilst it was being loaded
+            ret = resolvePermissions(contexts);
+            resolvedPermissions.put(contexts, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Invalidates the groups resolved permissions in all contexts.
+     */
+    public void invalidateResolvedPermissions() {
+        resolvedPermissionsStamp++;
+        resolvedPermissions.invalidateAll();
+    }
+
+    /**
+     * A groups permissions, resolved in a given set of contexts
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class ResolvedPermissions {
+        @Getter(AccessLevel.NONE)
+        private final long stamp;
+
+        /**
+         * The resolved permissions, in lowercase
+         */
+        private final Map<String, Boolean> permissions;
+
+        /**
+         * The names of the groups which were resolved, in the order they were applied
+         */
+        private final List<String> resolvedGroups;
+    }
 }
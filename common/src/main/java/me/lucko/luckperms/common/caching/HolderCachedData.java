@@ -31,20 +31,30 @@ import lombok.RequiredArgsConstructor;
 import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 
 import me.lucko.luckperms.api.ChatMetaType;
 import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.caching.CachedData;
 import me.lucko.luckperms.api.caching.MetaContexts;
+import me.lucko.luckperms.common.caching.handlers.NodeChangeTracker;
 import me.lucko.luckperms.common.caching.type.MetaAccumulator;
 import me.lucko.luckperms.common.caching.type.MetaCache;
 import me.lucko.luckperms.common.caching.type.PermissionCache;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.metastacking.SimpleMetaStack;
+import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
@@ -88,15 +98,180 @@ public abstract class HolderCachedData<T extends PermissionHolder> implements Ca
             data = new PermissionCache(contexts, getHolderName(), holder.getPlugin().getCalculatorFactory());
         }
 
+        if (sharesInheritedPermissions(contexts)) {
+            // layer the holders own permissions over the shared permissions of its parents
+            Set<String> resolvedGroups = new LinkedHashSet<>();
+            List<Map<String, Boolean>> inherited = resolveInherited(contexts, resolvedGroups);
+            data.setLayeredPermissions(holder.exportOwnNodesAndShorthand(contexts, true), inherited, ImmutableList.copyOf(resolvedGroups));
+            return data;
+        }
+
+        // record the groups which were resolved, so changes to them can be applied incrementally
+        Set<String> resolvedGroups = new LinkedHashSet<>();
         if (contexts == Contexts.allowAll()) {
-            data.setPermissions(holder.exportNodesAndShorthand(true));
+            data.setPermissions(holder.exportNodesAndShorthand(true, resolvedGroups), ImmutableList.copyOf(resolvedGroups));
         } else {
-            data.setPermissions(holder.exportNodesAndShorthand(contexts, true));
+            data.setPermissions(holder.exportNodesAndShorthand(contexts, true, resolvedGroups), ImmutableList.copyOf(resolvedGroups));
         }
 
         return data;
     }
 
+    /**
+     * Gets if the holders inherited permissions should be taken from the shared
+     * {@link GroupCachedData#getResolvedPermissions(Contexts)} of its parents, instead of
+     * being copied into the holders own data.
+     *
+     * <p>Resolving each parent separately gives the same result as resolving them together,
+     * as any group already applied by an earlier parent has already had its own parents
+     * applied, and so all of its permissions are already present in an earlier layer.</p>
+     *
+     * @param contexts the contexts being calculated
+     * @return true if the inherited permissions should be shared
+     */
+    private boolean sharesInheritedPermissions(Contexts contexts) {
+        // groups are few, and are the ones being shared
+        return !(holder instanceof Group) && contexts.isApplyGroups();
+    }
+
+    /**
+     * Gets the shared resolved permissions of the holders parents.
+     *
+     * @param contexts the contexts to resolve in
+     * @param resolvedGroups the set to add the names of the resolved groups to, in the order they were applied
+     * @return the inherited layers, in the order they are applied
+     */
+    private List<Map<String, Boolean>> resolveInherited(Contexts contexts, Set<String> resolvedGroups) {
+        List<Group> parents = holder.resolveParents(contexts);
+        ImmutableList.Builder<Map<String, Boolean>> inherited = ImmutableList.builder();
+        for (Group parent : parents) {
+            GroupCachedData.ResolvedPermissions resolved = parent.getCachedData().getResolvedPermissions(contexts);
+            inherited.add(resolved.getPermissions());
+            resolvedGroups.addAll(resolved.getResolvedGroups());
+        }
+        return inherited.build();
+    }
+
+    /**
+     * Recalculates the permissions affected by a set of changed nodes in a {@link PermissionCache} instance.
+     *
+     * @param contexts the contexts the data was calculated in
+     * @param data the data to update
+     * @param changed the nodes which were changed
+     * @return false if the data couldn't be updated incrementally, and needs to be recalculated
+     */
+    private boolean updatePermissions(Contexts contexts, PermissionCache data, Set<Node> changed) {
+        List<String> resolvedGroups = data.getResolvedGroups();
+        if (resolvedGroups == null) {
+            return false;
+        }
+
+        boolean applyShorthand = holder.getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND);
+
+        if (sharesInheritedPermissions(contexts)) {
+            // the shared layers are recalculated by the groups themselves, so just pick up the latest
+            // versions, and update the holders own permissions.
+            Set<String> resolved = new LinkedHashSet<>();
+            List<Map<String, Boolean>> inherited = resolveInherited(contexts, resolved);
+            if (!resolvedGroups.equals(new ArrayList<>(resolved))) {
+                return false;
+            }
+
+            List<PermissionHolder> holders = Collections.singletonList(holder);
+            Map<String, Boolean> updates = new HashMap<>();
+            for (String permission : getAffectedPermissions(changed, applyShorthand)) {
+                updates.put(permission, resolvePermission(holders, contexts, permission, applyShorthand));
+            }
+
+            data.updatePermissions(updates, inherited);
+            return true;
+        }
+
+        // the holders which contributed to the data, in the order their nodes were applied
+        List<PermissionHolder> holders = new ArrayList<>(resolvedGroups.size() + 1);
+        holders.add(holder);
+        for (String groupName : resolvedGroups) {
+            if (holder instanceof Group && groupName.equals(holder.getObjectName().toLowerCase())) {
+                continue;
+            }
+
+            Group group = holder.getPlugin().getGroupManager().getIfLoaded(groupName);
+            if (group == null) {
+                return false;
+            }
+            holders.add(group);
+        }
+
+        Map<String, Boolean> updates = new HashMap<>();
+        for (String permission : getAffectedPermissions(changed, applyShorthand)) {
+            updates.put(permission, resolvePermission(holders, contexts, permission, applyShorthand));
+        }
+
+        data.updatePermissions(updates);
+        return true;
+    }
+
+    /**
+     * Gets the permissions whose values may be affected by a set of changed nodes.
+     *
+     * @param changed the nodes which were changed
+     * @param applyShorthand if shorthand nodes should be considered
+     * @return the permissions, in lowercase
+     */
+    private static Set<String> getAffectedPermissions(Set<Node> changed, boolean applyShorthand) {
+        Set<String> permissions = new HashSet<>();
+        for (Node node : changed) {
+            permissions.add(node.getPermission().toLowerCase());
+
+            if (applyShorthand) {
+                for (String s : node.resolveShorthand()) {
+                    permissions.add(s.toLowerCase());
+                }
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * Resolves the value of a single permission, following the same rules as
+     * {@link PermissionHolder#exportNodesAndShorthand(Contexts, boolean)}.
+     *
+     * @param holders the holders to resolve from, in the order they are applied
+     * @param contexts the contexts to resolve in
+     * @param permission the permission, in lowercase
+     * @param applyShorthand if shorthand nodes should be considered
+     * @return the value, or null if the permission isn't set
+     */
+    private static Boolean resolvePermission(List<PermissionHolder> holders, Contexts contexts, String permission, boolean applyShorthand) {
+        for (PermissionHolder holder : holders) {
+            for (Node node : holder.getOwnNodesSetting(permission)) {
+                if (!applyShorthand && !node.getPermission().toLowerCase().equals(permission)) {
+                    continue;
+                }
+
+                if (contexts != Contexts.allowAll() && !appliesInContext(node, contexts)) {
+                    continue;
+                }
+
+                return node.getValuePrimitive();
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean appliesInContext(Node node, Contexts contexts) {
+        if (!node.getFullContexts().isSatisfiedBy(contexts.getContexts())) {
+            return false;
+        }
+
+        if (node.isGroupNode()) {
+            return true;
+        }
+
+        return (contexts.isIncludeGlobal() || node.isServerSpecific()) && (contexts.isApplyGlobalWorldGroups() || node.isWorldSpecific());
+    }
+
     /**
      * Calculates a {@link MetaCache} instance.
      *
@@ -218,6 +393,79 @@ public abstract class HolderCachedData<T extends PermissionHolder> implements Ca
         return CompletableFuture.allOf(keys.stream().map(this::reloadMeta).toArray(CompletableFuture[]::new));
     }
 
+    /**
+     * Gets if any of the data currently held depends on the given holder
+     *
+     * @param origin the holder
+     * @return true if the data depends on the holder
+     */
+    public boolean dependsOn(PermissionHolder origin) {
+        for (Map.Entry<Contexts, PermissionCache> e : permission.asMap().entrySet()) {
+            if (dependsOn(e.getValue(), origin)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean dependsOn(PermissionCache data, PermissionHolder origin) {
+        if (origin == holder) {
+            return true;
+        }
+
+        // only groups can be inherited
+        if (!(origin instanceof Group)) {
+            return false;
+        }
+
+        List<String> resolvedGroups = data.getResolvedGroups();
+        return resolvedGroups == null || resolvedGroups.contains(origin.getObjectName().toLowerCase());
+    }
+
+    /**
+     * Applies changes made to a holder to the data which depends on it.
+     *
+     * <p>Where possible, only the permissions affected by the changed nodes are
+     * recalculated. Anything else is reloaded.</p>
+     *
+     * @param origin the holder which was changed
+     * @param changes the changes made to the holder
+     * @return a future which completes with true if any data depended on the holder
+     */
+    public CompletableFuture<Boolean> applyChanges(@NonNull PermissionHolder origin, @NonNull NodeChangeTracker.Changes changes) {
+        if (changes.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        boolean affected = false;
+
+        for (Map.Entry<Contexts, PermissionCache> e : permission.asMap().entrySet()) {
+            if (!dependsOn(e.getValue(), origin)) {
+                continue;
+            }
+
+            affected = true;
+            if (changes.isFullRecalculation() || !updatePermissions(e.getKey(), e.getValue(), changes.getNodes())) {
+                futures.add(reloadPermissions(e.getKey()));
+            }
+        }
+
+        if (changes.affectsMeta()) {
+            for (MetaContexts contexts : meta.asMap().keySet()) {
+                // if there's no permission data to tell us otherwise, assume the meta depends on the holder
+                PermissionCache data = permission.getIfPresent(contexts.getContexts());
+                if (data == null || dependsOn(data, origin)) {
+                    affected = true;
+                    futures.add(reloadMeta(contexts));
+                }
+            }
+        }
+
+        boolean ret = affected;
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).thenApply(v -> ret);
+    }
+
     @Override
     public void preCalculate(@NonNull Contexts contexts) {
         // pre-calculate just by requesting the data from this cache.
@@ -25,22 +25,41 @@
 
 package me.lucko.luckperms.common.caching.handlers;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
+import com.google.common.collect.ImmutableSet;
 
 import me.lucko.luckperms.common.references.HolderReference;
 
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Manages the cached state of all permission holders
+ *
+ * <p>The transitive inheritances of each group are precomputed, and updated incrementally as
+ * holders declare their state. Only the entries of the holders whose inheritances changed are
+ * touched, so lookups can read them without locking.</p>
  */
 public class CachedStateManager {
 
-    // Group --> Groups/Users that inherit from that group. (reverse relationship)
-    private final Multimap<HolderReference, HolderReference> map = HashMultimap.create();
+    // Holder --> Groups that holder directly inherits from.
+    private final Map<HolderReference, Set<HolderReference>> parents = new HashMap<>();
+
+    // Group --> Groups/Users that inherit from that group, either directly or via other groups.
+    // The sets are modified in place, as the closure of a group like default holds every user.
+    private final Map<HolderReference, Set<HolderReference>> inheritances = new ConcurrentHashMap<>();
+
+    // Holder --> Groups that holder inherits from, either directly or via other groups. (reverse of the above)
+    // The sets are immutable, and replaced whenever they change.
+    private final Map<HolderReference, Set<HolderReference>> inheritedGroups = new ConcurrentHashMap<>();
+
+    // guards modifications to the above
     private final ReentrantLock lock = new ReentrantLock();
 
     /**
@@ -51,32 +70,19 @@ public class CachedStateManager {
      * @return a set of inherited groups
      */
     public Set<HolderReference> getInheritances(HolderReference holder) {
-        Set<HolderReference> set = new HashSet<>();
-        set.add(holder);
-
-        lock.lock();
-        try {
-            while (true) {
-                Set<HolderReference> clone = new HashSet<>(set);
-
-                boolean work = false;
-
-                for (HolderReference s : clone) {
-                    if (set.addAll(map.get(s))) {
-                        work = true;
-                    }
-                }
-
-                if (!work) {
-                    break;
-                }
-            }
-        } finally {
-            lock.unlock();
-        }
+        Set<HolderReference> ret = inheritances.get(holder);
+        return ret == null ? ImmutableSet.of() : Collections.unmodifiableSet(ret);
+    }
 
-        set.remove(holder);
-        return set;
+    /**
+     * Gets the groups the given holder inherits from, either directly or via other groups
+     *
+     * @param holder the holder to query for
+     * @return a set of groups
+     */
+    public Set<HolderReference> getInheritedGroups(HolderReference holder) {
+        Set<HolderReference> ret = inheritedGroups.get(holder);
+        return ret == null ? ImmutableSet.of() : ret;
     }
 
     /**
@@ -88,10 +94,22 @@ public class CachedStateManager {
     public void putAll(HolderReference holder, Set<HolderReference> inheritedGroups) {
         lock.lock();
         try {
-            map.entries().removeIf(entry -> entry.getValue().equals(holder));
+            Set<HolderReference> previous = parents.getOrDefault(holder, Collections.emptySet());
+            if (previous.equals(inheritedGroups)) {
+                return;
+            }
+
+            if (inheritedGroups.isEmpty()) {
+                parents.remove(holder);
+            } else {
+                parents.put(holder, ImmutableSet.copyOf(inheritedGroups));
+            }
 
-            for (HolderReference child : inheritedGroups) {
-                map.put(child, holder);
+            // only the holder and the holders inheriting from it gain or lose groups. the holders
+            // inheriting from it don't change, as their paths to it don't depend on its parents
+            updateInheritedGroups(holder);
+            for (HolderReference child : getInheritances(holder)) {
+                updateInheritedGroups(child);
             }
         } finally {
             lock.unlock();
@@ -104,12 +122,56 @@ public class CachedStateManager {
      * @param holder the holder name to clear
      */
     public void clear(HolderReference holder) {
-        lock.lock();
-        try {
-            map.entries().removeIf(entry -> entry.getValue().equals(holder));
-        } finally {
-            lock.unlock();
+        putAll(holder, Collections.emptySet());
+    }
+
+    /**
+     * Recalculates the groups a holder inherits from, and adds or removes the holder from the
+     * inheritances of the groups it gained or lost.
+     *
+     * @param holder the holder to update
+     */
+    private void updateInheritedGroups(HolderReference holder) {
+        Set<HolderReference> previous = getInheritedGroups(holder);
+        Set<HolderReference> updated = resolveInheritedGroups(holder);
+        if (previous.equals(updated)) {
+            return;
+        }
+
+        for (HolderReference group : previous) {
+            if (!updated.contains(group)) {
+                Set<HolderReference> set = inheritances.get(group);
+                set.remove(holder);
+                if (set.isEmpty()) {
+                    inheritances.remove(group);
+                }
+            }
+        }
+        for (HolderReference group : updated) {
+            if (!previous.contains(group)) {
+                inheritances.computeIfAbsent(group, x -> ConcurrentHashMap.newKeySet()).add(holder);
+            }
+        }
+
+        if (updated.isEmpty()) {
+            inheritedGroups.remove(holder);
+        } else {
+            inheritedGroups.put(holder, updated);
+        }
+    }
+
+    private Set<HolderReference> resolveInheritedGroups(HolderReference holder) {
+        Set<HolderReference> set = new HashSet<>();
+        Deque<HolderReference> queue = new ArrayDeque<>(parents.getOrDefault(holder, Collections.emptySet()));
+        while (!queue.isEmpty()) {
+            HolderReference group = queue.poll();
+            if (set.add(group)) {
+                queue.addAll(parents.getOrDefault(group, Collections.emptySet()));
+            }
         }
+
+        set.remove(holder);
+        return ImmutableSet.copyOf(set);
     }
 
 }
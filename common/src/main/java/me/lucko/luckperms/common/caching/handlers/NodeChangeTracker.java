@@ -0,0 +1,166 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.caching.handlers;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import com.google.common.collect.ImmutableSet;
+
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.common.model.PermissionHolder;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Records the nodes which have changed on a {@link PermissionHolder} since its
+ * cached data was last refreshed.
+ *
+ * <p>When incremental updates are enabled, the recorded changes are used to
+ * recalculate only the affected entries in the cached data of the holder and
+ * the holders which inherit from it.</p>
+ */
+public class NodeChangeTracker {
+
+    // past this many changes, recalculating everything is likely to be cheaper anyway
+    private static final int MAX_TRACKED_CHANGES = 64;
+
+    private final Set<Node> changed = new HashSet<>();
+    private boolean fullRecalculation = false;
+
+    // if the holder needs a full recalculation because a group it inherits from changed
+    private boolean inheritedRecalculation = false;
+
+    /**
+     * Records that a single node has been added or removed.
+     *
+     * <p>Changes to group or weight nodes alter the inheritance tree, so are
+     * recorded as requiring a full recalculation.</p>
+     *
+     * @param node the node
+     */
+    public synchronized void recordChange(Node node) {
+        if (fullRecalculation) {
+            return;
+        }
+
+        if (node.isGroupNode() || node.getPermission().startsWith("weight.") || changed.size() >= MAX_TRACKED_CHANGES) {
+            recordFullChange();
+            return;
+        }
+
+        changed.add(node);
+    }
+
+    /**
+     * Records a change which can't be described by individual nodes.
+     */
+    public synchronized void recordFullChange() {
+        fullRecalculation = true;
+        changed.clear();
+    }
+
+    /**
+     * Records that a group the holder inherits from needs a full recalculation.
+     *
+     * <p>The group which changed passes the recalculation on to every holder which
+     * inherits from it, so this change does not need to be passed on again.</p>
+     */
+    public synchronized void recordInheritedChange() {
+        inheritedRecalculation = true;
+    }
+
+    /**
+     * Gets the changes recorded since the last call, and resets the tracker.
+     *
+     * @return the recorded changes
+     */
+    public synchronized Changes drain() {
+        Changes ret;
+        if (fullRecalculation || (inheritedRecalculation && !changed.isEmpty())) {
+            // the holders own changes still have to be passed on
+            ret = Changes.FULL;
+        } else if (inheritedRecalculation) {
+            ret = Changes.INHERITED;
+        } else {
+            ret = new Changes(false, false, ImmutableSet.copyOf(changed));
+        }
+        fullRecalculation = false;
+        inheritedRecalculation = false;
+        changed.clear();
+        return ret;
+    }
+
+    /**
+     * A set of changes made to a holder
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Changes {
+        public static final Changes FULL = new Changes(true, false, ImmutableSet.of());
+        public static final Changes INHERITED = new Changes(true, true, ImmutableSet.of());
+
+        /**
+         * If the changes require all cached data depending on the holder to be recalculated
+         */
+        private final boolean fullRecalculation;
+
+        /**
+         * If the full recalculation was passed on from a group the holder inherits from,
+         * which has already passed it on to all of its other dependants
+         */
+        private final boolean inherited;
+
+        /**
+         * The nodes which were added or removed, if {@link #isFullRecalculation()} is false
+         */
+        private final Set<Node> nodes;
+
+        public boolean isEmpty() {
+            return !fullRecalculation && nodes.isEmpty();
+        }
+
+        /**
+         * Gets if the changes could affect the holders meta data
+         *
+         * @return true if meta data needs to be recalculated
+         */
+        public boolean affectsMeta() {
+            if (fullRecalculation) {
+                return true;
+            }
+
+            for (Node node : nodes) {
+                if (node.isMeta() || node.isPrefix() || node.isSuffix()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
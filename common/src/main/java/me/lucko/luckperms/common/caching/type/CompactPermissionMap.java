@@ -0,0 +1,337 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.caching.type;
+
+import com.google.common.collect.AbstractIterator;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable, compact map of permissions to their values.
+ *
+ * <p>Keys are held in an open-addressed table, using linear probing, and the values
+ * are packed into a bitset indexed by the same slot. Unlike a {@link java.util.HashMap},
+ * no objects are allocated per entry.</p>
+ */
+public final class CompactPermissionMap extends AbstractMap<String, Boolean> {
+    private static final CompactPermissionMap EMPTY = new CompactPermissionMap(new String[1], new long[1], 0);
+
+    /**
+     * Gets an empty map
+     *
+     * @return an empty map
+     */
+    public static CompactPermissionMap of() {
+        return EMPTY;
+    }
+
+    /**
+     * Gets a compact copy of the given map
+     *
+     * @param map the map to copy
+     * @return a compact copy
+     */
+    public static CompactPermissionMap copyOf(Map<String, Boolean> map) {
+        if (map instanceof CompactPermissionMap) {
+            return (CompactPermissionMap) map;
+        }
+
+        Builder builder = builder(map.size());
+        for (Map.Entry<String, Boolean> e : map.entrySet()) {
+            builder.put(e.getKey(), e.getValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates a new builder
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder(0);
+    }
+
+    /**
+     * Creates a new builder, sized for the given number of entries
+     *
+     * @param expectedSize the expected number of entries
+     * @return a new builder
+     */
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    // tables are resized once more than 2/3 of the slots are used
+    private static int tableSizeFor(int size) {
+        int capacity = Integer.highestOneBit(Math.max(size + (size >> 1), 2) - 1) << 1;
+        return Math.max(capacity, 2);
+    }
+
+    private static int indexFor(String key, int mask) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private final String[] keys;
+    private final long[] values;
+    private final int size;
+
+    private final EntrySet entrySet = new EntrySet();
+
+    // the map is immutable, so the hash is calculated once. 0 if not yet calculated
+    private int hash = 0;
+
+    private CompactPermissionMap(String[] keys, long[] values, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+    }
+
+    private int slotOf(Object key) {
+        if (!(key instanceof String) || size == 0) {
+            return -1;
+        }
+
+        int mask = keys.length - 1;
+        int i = indexFor((String) key, mask);
+        String k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean valueAt(int slot) {
+        return (values[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    @Override
+    public Boolean get(Object key) {
+        int slot = slotOf(key);
+        return slot == -1 ? null : valueAt(slot);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slotOf(key) != -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && size != 0) {
+            for (int i = 0; i < keys.length; i++) {
+                String k = keys[i];
+                if (k != null) {
+                    // as defined by Map.Entry#hashCode
+                    h += k.hashCode() ^ Boolean.hashCode(valueAt(i));
+                }
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Boolean> action) {
+        for (int i = 0; i < keys.length; i++) {
+            String k = keys[i];
+            if (k != null) {
+                action.accept(k, valueAt(i));
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Boolean>> entrySet() {
+        return entrySet;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Boolean>> {
+
+        @Override
+        public Iterator<Entry<String, Boolean>> iterator() {
+            return new AbstractIterator<Entry<String, Boolean>>() {
+                private int index = 0;
+
+                @Override
+                protected Entry<String, Boolean> computeNext() {
+                    while (index < keys.length) {
+                        int i = index++;
+                        String k = keys[i];
+                        if (k != null) {
+                            return new SimpleImmutableEntry<>(k, valueAt(i));
+                        }
+                    }
+                    return endOfData();
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            int slot = slotOf(e.getKey());
+            return slot != -1 && e.getValue() instanceof Boolean && valueAt(slot) == (Boolean) e.getValue();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Builds a {@link CompactPermissionMap}.
+     *
+     * <p>The built map shares the builders tables, so a builder can't be used after
+     * {@link #build()} has been called.</p>
+     */
+    public static final class Builder {
+        private String[] keys;
+        private long[] values;
+        private int size = 0;
+
+        private Builder(int expectedSize) {
+            allocate(tableSizeFor(expectedSize));
+        }
+
+        private void allocate(int capacity) {
+            keys = new String[capacity];
+            values = new long[(capacity + 63) >>> 6];
+        }
+
+        private int slotFor(String key) {
+            int mask = keys.length - 1;
+            int i = indexFor(key, mask);
+            String k;
+            while ((k = keys[i]) != null) {
+                if (k.equals(key)) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private void setValue(int slot, boolean value) {
+            if (value) {
+                values[slot >>> 6] |= 1L << slot;
+            } else {
+                values[slot >>> 6] &= ~(1L << slot);
+            }
+        }
+
+        private void resize() {
+            String[] oldKeys = keys;
+            long[] oldValues = values;
+            allocate(keys.length << 1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                String k = oldKeys[i];
+                if (k != null) {
+                    int slot = slotFor(k);
+                    keys[slot] = k;
+                    setValue(slot, (oldValues[i >>> 6] & (1L << i)) != 0);
+                }
+            }
+        }
+
+        private void insert(int slot, String key, boolean value) {
+            keys[slot] = key;
+            setValue(slot, value);
+            if (++size * 3 > keys.length * 2) {
+                resize();
+            }
+        }
+
+        /**
+         * Adds an entry, replacing any existing value
+         *
+         * @param key the permission
+         * @param value the value
+         * @return this builder
+         */
+        public Builder put(String key, boolean value) {
+            int slot = slotFor(key);
+            if (keys[slot] != null) {
+                setValue(slot, value);
+            } else {
+                insert(slot, key, value);
+            }
+            return this;
+        }
+
+        /**
+         * Adds an entry, unless the key is already present
+         *
+         * @param key the permission
+         * @param value the value
+         * @return true if the entry was added
+         */
+        public boolean putIfAbsent(String key, boolean value) {
+            int slot = slotFor(key);
+            if (keys[slot] != null) {
+                return false;
+            }
+            insert(slot, key, value);
+            return true;
+        }
+
+        /**
+         * Builds the map
+         *
+         * @return the map
+         */
+        public CompactPermissionMap build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new CompactPermissionMap(keys, values, size);
+        }
+    }
+}
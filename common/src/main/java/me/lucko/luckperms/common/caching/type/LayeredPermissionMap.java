@@ -0,0 +1,258 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.caching.type;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable view of a holders own permissions, layered over the permissions they inherit.
+ *
+ * <p>The holders own permissions are checked first, followed by each inherited layer in
+ * turn. The first layer to contain a permission determines its value.</p>
+ *
+ * <p>Inherited layers are the resolved permissions of the holders parent groups, and are
+ * shared between all holders which inherit from the same groups.</p>
+ *
+ * <p>Counting or hashing the entries means checking each of them against the earlier layers,
+ * so the size and hash are only calculated once, when first needed.</p>
+ */
+public class LayeredPermissionMap extends AbstractMap<String, Boolean> {
+
+    /**
+     * The holders own permissions
+     */
+    private final Map<String, Boolean> own;
+
+    /**
+     * The inherited layers, in the order they are applied
+     */
+    private final List<Map<String, Boolean>> inherited;
+
+    private final EntrySet entrySet = new EntrySet();
+
+    /**
+     * The size and hash of the map, or null if they haven't been calculated yet
+     */
+    private volatile Summary summary = null;
+
+    public LayeredPermissionMap(Map<String, Boolean> own, List<Map<String, Boolean>> inherited) {
+        this.own = own;
+        this.inherited = ImmutableList.copyOf(inherited);
+    }
+
+    public Map<String, Boolean> getOwn() {
+        return own;
+    }
+
+    public List<Map<String, Boolean>> getInherited() {
+        return inherited;
+    }
+
+    @Override
+    public Boolean get(Object key) {
+        Boolean value = own.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        for (Map<String, Boolean> layer : inherited) {
+            value = layer.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return summary().size;
+    }
+
+    @Override
+    public int hashCode() {
+        return summary().hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (o instanceof LayeredPermissionMap && hasSameStructure((LayeredPermissionMap) o)) {
+            return true;
+        }
+        return super.equals(o);
+    }
+
+    /**
+     * Gets a hash of the structure of this map - the holders own permissions, and the
+     * identities of the inherited layers.
+     *
+     * <p>Unlike {@link #hashCode()}, this never has to look at the inherited permissions.</p>
+     *
+     * @return the structural hash
+     */
+    public int structuralHashCode() {
+        int hash = own.hashCode();
+        for (Map<String, Boolean> layer : inherited) {
+            hash = 31 * hash + System.identityHashCode(layer);
+        }
+        return hash;
+    }
+
+    /**
+     * Gets if another map has the same structure as this map. Maps with the same structure
+     * are always equal, but equal maps may have different structures.
+     *
+     * @param other the other map
+     * @return true if the maps have equal own permissions, and the same inherited layers
+     */
+    public boolean hasSameStructure(LayeredPermissionMap other) {
+        if (inherited.size() != other.inherited.size()) {
+            return false;
+        }
+        // layers are shared and never modified, so identity is enough to compare them
+        for (int i = 0; i < inherited.size(); i++) {
+            if (inherited.get(i) != other.inherited.get(i)) {
+                return false;
+            }
+        }
+        return own.equals(other.own);
+    }
+
+    private Summary summary() {
+        Summary summary = this.summary;
+        if (summary == null) {
+            if (inherited.isEmpty()) {
+                summary = new Summary(own.size(), own.hashCode());
+            } else {
+                int size = 0;
+                int hash = 0;
+                for (Entry<String, Boolean> entry : entrySet) {
+                    size++;
+                    hash += entryHash(entry.getKey(), entry.getValue());
+                }
+                summary = new Summary(size, hash);
+            }
+            this.summary = summary;
+        }
+        return summary;
+    }
+
+    // as defined by Map.Entry#hashCode
+    private static int entryHash(String key, Boolean value) {
+        return key.hashCode() ^ value.hashCode();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (!own.isEmpty()) {
+            return false;
+        }
+        for (Map<String, Boolean> layer : inherited) {
+            if (!layer.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<Entry<String, Boolean>> entrySet() {
+        return entrySet;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Boolean>> {
+
+        @Override
+        public Iterator<Entry<String, Boolean>> iterator() {
+            return new AbstractIterator<Entry<String, Boolean>>() {
+                private int index = -1;
+                private Iterator<Entry<String, Boolean>> current = own.entrySet().iterator();
+
+                @Override
+                protected Entry<String, Boolean> computeNext() {
+                    while (true) {
+                        while (current.hasNext()) {
+                            Entry<String, Boolean> entry = current.next();
+                            if (!isShadowed(entry.getKey())) {
+                                return entry;
+                            }
+                        }
+
+                        if (++index >= inherited.size()) {
+                            return endOfData();
+                        }
+                        current = inherited.get(index).entrySet().iterator();
+                    }
+                }
+
+                // if the key is present in a layer before the current one
+                private boolean isShadowed(String key) {
+                    if (index < 0) {
+                        return false;
+                    }
+                    if (own.containsKey(key)) {
+                        return true;
+                    }
+                    for (int i = 0; i < index; i++) {
+                        if (inherited.get(i).containsKey(key)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return LayeredPermissionMap.this.size();
+        }
+    }
+
+    private static final class Summary {
+        private final int size;
+        private final int hash;
+
+        private Summary(int size, int hash) {
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+}
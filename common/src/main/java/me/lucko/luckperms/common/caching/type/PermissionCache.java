@@ -27,6 +27,8 @@ package me.lucko.luckperms.common.caching.type;
 
 import lombok.NonNull;
 
+import com.google.common.collect.ImmutableList;
+
 import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.api.caching.PermissionData;
@@ -35,40 +37,39 @@ import me.lucko.luckperms.common.calculators.PermissionCalculator;
 import me.lucko.luckperms.common.calculators.PermissionCalculatorMetadata;
 import me.lucko.luckperms.common.verbose.CheckOrigin;
 
-import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Holds cached permissions data for a given context
  */
 public class PermissionCache implements PermissionData {
 
-    /**
-     * The raw set of permission strings.
-     */
-    private final Map<String, Boolean> permissions;
-
-    /**
-     * An immutable copy of {@link #permissions}
-     */
-    private final Map<String, Boolean> permissionsUnmodifiable;
-
     /**
      * The calculator instance responsible for resolving the raw permission strings in the permission map.
      * This calculator will attempt to resolve all regex/wildcard permissions, as well as account for
      * defaults & attachment permissions (if applicable.)
+     *
+     * <p>The calculator also holds the backing {@link LayeredPermissionMap}, so that the permissions
+     * and the state derived from them are always published together.</p>
      */
     private final PermissionCalculator calculator;
 
-    public PermissionCache(Contexts contexts, String friendlyName, CalculatorFactory calculatorFactory) {
-        permissions = new ConcurrentHashMap<>();
-        permissionsUnmodifiable = Collections.unmodifiableMap(permissions);
+    /**
+     * The names of the groups which were resolved when the permissions were last calculated,
+     * in the order they were applied. Used to determine which holders this data depends on
+     * when applying changes incrementally. null if the groups are unknown.
+     */
+    private volatile List<String> resolvedGroups = null;
 
+    public PermissionCache(Contexts contexts, String friendlyName, CalculatorFactory calculatorFactory) {
         PermissionCalculatorMetadata metadata = PermissionCalculatorMetadata.of(friendlyName, contexts.getContexts());
 
         calculator = calculatorFactory.build(contexts, metadata);
-        calculator.updateBacking(permissions); // Initial setup.
+        calculator.updateBacking(new LayeredPermissionMap(CompactPermissionMap.of(), ImmutableList.of())); // Initial setup.
     }
 
     @Override
@@ -76,22 +77,154 @@ public class PermissionCache implements PermissionData {
         calculator.invalidateCache();
     }
 
-    private void setPermissionsInternal(Map<String, Boolean> permissions) {
-        this.permissions.clear();
-        this.permissions.putAll(permissions);
-        calculator.updateBacking(this.permissions);
-        invalidateCache();
+    /**
+     * Gets the holders resolved permissions, layered over any shared inherited permissions.
+     *
+     * <p>When the holders inherited permissions are shared, the own layer only contains the
+     * holders own permissions. The map is never modified - it is replaced as a whole whenever
+     * the permissions change.</p>
+     *
+     * @return the current backing map
+     */
+    private LayeredPermissionMap backing() {
+        return (LayeredPermissionMap) calculator.getBacking();
+    }
+
+    private void setPermissionsInternal(Map<String, Boolean> permissions, List<Map<String, Boolean>> inherited) {
+        calculator.updateBacking(new LayeredPermissionMap(CompactPermissionMap.copyOf(permissions), inherited));
     }
 
     public void setPermissions(Map<String, Boolean> toApply) {
-        if (!permissions.equals(toApply)) {
-            setPermissionsInternal(toApply);
+        setLayeredPermissions(toApply, ImmutableList.of());
+    }
+
+    public void setPermissions(Map<String, Boolean> toApply, List<String> resolvedGroups) {
+        setPermissions(toApply);
+        this.resolvedGroups = resolvedGroups;
+    }
+
+    /**
+     * Sets the permissions in this cache, layered over a number of shared inherited layers.
+     *
+     * @param own the holders own permissions
+     * @param inherited the inherited layers, in the order they are applied
+     */
+    public synchronized void setLayeredPermissions(Map<String, Boolean> own, List<Map<String, Boolean>> inherited) {
+        if (!backing().getOwn().equals(own) || !sameLayers(inherited)) {
+            setPermissionsInternal(own, inherited);
+        }
+    }
+
+    public void setLayeredPermissions(Map<String, Boolean> own, List<Map<String, Boolean>> inherited, List<String> resolvedGroups) {
+        setLayeredPermissions(own, inherited);
+        this.resolvedGroups = resolvedGroups;
+    }
+
+    // layers are shared and never modified, so identity is enough to compare them
+    private boolean sameLayers(List<Map<String, Boolean>> inherited) {
+        List<Map<String, Boolean>> current = backing().getInherited();
+        if (current.size() != inherited.size()) {
+            return false;
         }
+        for (int i = 0; i < current.size(); i++) {
+            if (current.get(i) != inherited.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies changes to some of the permissions in this cache, without recalculating the others.
+     *
+     * @param updates the new values of the changed permissions. a null value removes the permission
+     */
+    public synchronized void updatePermissions(Map<String, Boolean> updates) {
+        LayeredPermissionMap backing = backing();
+
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, Boolean> e : updates.entrySet()) {
+            if (!Objects.equals(backing.getOwn().get(e.getKey()), e.getValue())) {
+                changed.add(e.getKey());
+            }
+        }
+
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        LayeredPermissionMap updated = new LayeredPermissionMap(applyUpdates(backing.getOwn(), updates), backing.getInherited());
+        calculator.updateBacking(updated, changed);
+    }
+
+    /**
+     * Applies changes to some of the holders own permissions, and replaces the inherited layers
+     * with their latest versions, without recalculating the other permissions.
+     *
+     * <p>The new layers may already include the changes to the given permissions, so they are
+     * always treated as changed. Layers which were replaced may also include changes which
+     * haven't been applied to this holder yet, so any other permissions which differ between
+     * the previous and new layers are treated as changed too.</p>
+     *
+     * @param updates the new values of the holders own changed permissions. a null value removes the permission
+     * @param inherited the inherited layers, in the order they are applied
+     */
+    public synchronized void updatePermissions(Map<String, Boolean> updates, List<Map<String, Boolean>> inherited) {
+        LayeredPermissionMap backing = backing();
+        LayeredPermissionMap updated = new LayeredPermissionMap(applyUpdates(backing.getOwn(), updates), inherited);
+
+        List<Map<String, Boolean>> current = backing.getInherited();
+        if (current.size() != inherited.size()) {
+            // the layers don't line up, so the whole map has to be compared
+            calculator.updateBacking(updated);
+            return;
+        }
+
+        Set<String> changed = new HashSet<>(updates.keySet());
+        for (int i = 0; i < current.size(); i++) {
+            // layers are shared and never modified, so identity is enough to compare them
+            if (current.get(i) != inherited.get(i)) {
+                addChangedKeys(current.get(i), inherited.get(i), changed);
+            }
+        }
+        calculator.updateBacking(updated, changed);
+    }
+
+    private static void addChangedKeys(Map<String, Boolean> from, Map<String, Boolean> to, Set<String> changed) {
+        to.forEach((k, v) -> {
+            if (!v.equals(from.get(k))) {
+                changed.add(k);
+            }
+        });
+        from.forEach((k, v) -> {
+            if (!to.containsKey(k)) {
+                changed.add(k);
+            }
+        });
+    }
+
+    private static Map<String, Boolean> applyUpdates(Map<String, Boolean> permissions, Map<String, Boolean> updates) {
+        CompactPermissionMap.Builder builder = CompactPermissionMap.builder(permissions.size() + updates.size());
+        permissions.forEach((k, v) -> {
+            if (!updates.containsKey(k)) {
+                builder.put(k, v);
+            }
+        });
+        updates.forEach((k, v) -> {
+            if (v != null) {
+                builder.put(k, v);
+            }
+        });
+        return builder.build();
+    }
+
+    public List<String> getResolvedGroups() {
+        return resolvedGroups;
     }
 
     @Override
     public Map<String, Boolean> getImmutableBacking() {
-        return permissionsUnmodifiable;
+        return backing();
     }
 
     @Override
@@ -102,4 +235,17 @@ public class PermissionCache implements PermissionData {
     public Tristate getPermissionValue(@NonNull String permission, CheckOrigin origin) {
         return calculator.getPermissionValue(permission, origin);
     }
+
+    /**
+     * Gets the values of a number of permissions in a single pass.
+     *
+     * @param permissions the permissions to check, which must already be lowercase
+     * @param results the array to write the results into
+     * @param offset the position in the results array to write the first result
+     * @param origin the origin of the checks
+     * @see PermissionCalculator#getPermissionValues(String[], Tristate[], int, CheckOrigin)
+     */
+    public void getPermissionValues(String[] permissions, Tristate[] results, int offset, CheckOrigin origin) {
+        calculator.getPermissionValues(permissions, results, offset, origin);
+    }
 }
@@ -25,23 +25,74 @@
 
 package me.lucko.luckperms.common.calculators;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.MapMaker;
 
+import me.lucko.luckperms.common.metrics.CheckMetrics;
+
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Set;
 
 public abstract class AbstractCalculatorFactory implements CalculatorFactory {
     private final Set<PermissionCalculator> calculators = Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
 
+    // shares the state of calculators with the same effective permissions
+    private final SnapshotPool snapshotPool = new SnapshotPool();
+
+    // records the time taken by checks made through calculators built by this factory
+    private final CheckMetrics checkMetrics = new CheckMetrics();
+
+    protected SnapshotPool getSnapshotPool() {
+        return snapshotPool;
+    }
+
     protected PermissionCalculator registerCalculator(PermissionCalculator calculator) {
         calculators.add(calculator);
         return calculator;
     }
 
+    @Override
+    public CheckMetrics getCheckMetrics() {
+        return checkMetrics;
+    }
+
     @Override
     public void invalidateAll() {
+        // cleared first, so a calculator picking up a pooled snapshot in the meantime
+        // still has it invalidated below
+        snapshotPool.invalidateAll();
         for (PermissionCalculator calculator : calculators) {
             calculator.invalidateCache();
         }
     }
+
+    @Override
+    public Set<PermissionCalculator> getCalculators() {
+        return ImmutableSet.copyOf(calculators);
+    }
+
+    @Override
+    public CacheStats getLookupCacheStats() {
+        CacheStats stats = snapshotPool.getLookupCacheStats().snapshot();
+        for (PermissionCalculator calculator : calculators) {
+            stats = stats.plus(calculator.getLookupCacheStats());
+        }
+        return stats;
+    }
+
+    @Override
+    public long getLookupCacheSize() {
+        // count each shared snapshot once
+        Set<PermissionCalculator.Snapshot> snapshots = Collections.newSetFromMap(new IdentityHashMap<>());
+        long size = 0;
+        for (PermissionCalculator calculator : calculators) {
+            PermissionCalculator.Snapshot snapshot = calculator.getSnapshot();
+            if (snapshots.add(snapshot)) {
+                size += snapshot.getLookupCacheSize();
+            }
+        }
+        return size;
+    }
 }
@@ -25,9 +25,13 @@
 
 package me.lucko.luckperms.common.calculators;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.common.metrics.CheckMetrics;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Creates a calculator instance given a set of contexts
@@ -55,4 +59,32 @@ public interface CalculatorFactory {
      */
     void invalidateAll();
 
+    /**
+     * Gets the calculators built by this factory which are still in use
+     *
+     * @return a snapshot of the active calculators
+     */
+    Set<PermissionCalculator> getCalculators();
+
+    /**
+     * Gets the combined lookup cache statistics of all calculators built by this factory
+     *
+     * @return the aggregate lookup cache statistics
+     */
+    CacheStats getLookupCacheStats();
+
+    /**
+     * Gets the combined approximate size of the lookup caches of all calculators built by this factory
+     *
+     * @return the aggregate lookup cache size
+     */
+    long getLookupCacheSize();
+
+    /**
+     * Gets the metrics recorded by the calculators built by this factory
+     *
+     * @return the check metrics
+     */
+    CheckMetrics getCheckMetrics();
+
 }
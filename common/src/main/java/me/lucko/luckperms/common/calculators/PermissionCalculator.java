@@ -25,44 +25,182 @@
 
 package me.lucko.luckperms.common.calculators;
 
-import lombok.RequiredArgsConstructor;
+import lombok.Getter;
 
 import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
+import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.Tristate;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.metrics.CheckMetrics;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.processors.PermissionProcessor;
 import me.lucko.luckperms.common.verbose.CheckOrigin;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 /**
- * Calculates and caches permissions
+ * Calculates permission values from a backing map, using a number of processors.
+ *
+ * <p>The backing map, the state the processors derive from it and the lookup cache are held
+ * together in an immutable snapshot. Updates build a complete new snapshot, and publish it
+ * with a single write, so checks never see partially updated state.</p>
+ *
+ * <p>Cached lookups which cannot have been affected by an update are carried over
+ * into the new snapshot, so small changes to the backing don't cause every
+ * permission to be recalculated.</p>
+ *
+ * <p>If the calculator was built with a {@link SnapshotPool}, snapshots are shared with
+ * any other calculator in the pool which has the same configuration and an equal backing,
+ * along with their warm lookup cache.</p>
+ *
+ * <p>The time taken by checks is recorded to the {@link CheckMetrics} of the
+ * plugins calculator factory.</p>
  */
-@RequiredArgsConstructor
-public class PermissionCalculator implements CacheLoader<String, Tristate> {
+public class PermissionCalculator {
     private final LuckPermsPlugin plugin;
+
+    @Getter
     private final PermissionCalculatorMetadata metadata;
-    private final List<PermissionProcessor> processors;
 
-    // caches lookup calls.
-    private final LoadingCache<String, Tristate> lookupCache = Caffeine.newBuilder().build(this);
+    // the pool to share snapshots through, or null if they are not shared
+    private final SnapshotPool pool;
+
+    // identifies the processors used by this calculator within the pool
+    private final Object configuration;
+
+    // records the lookups made through this calculator, and the loads/evictions of
+    // the lookup caches it builds when they are not shared
+    private final ConcurrentStatsCounter lookupCacheStats = new ConcurrentStatsCounter();
+
+    // records the time taken by checks
+    private final CheckMetrics metrics;
+
+    // the number of single checks made, used to pick the checks to time. updates from
+    // concurrent checks may be lost, which only makes the sampling slightly less regular
+    private int checkCount = 0;
+
+    // the current state of the calculator. never modified, only replaced.
+    private volatile Snapshot snapshot;
+
+    // converts checked permissions to lowercase without allocating for repeated checks
+    private final PermissionNormaliser normaliser = new PermissionNormaliser();
+
+    public PermissionCalculator(LuckPermsPlugin plugin, PermissionCalculatorMetadata metadata, List<PermissionProcessor> processors) {
+        this(plugin, metadata, processors, null, null);
+    }
+
+    /**
+     * Creates a calculator which shares its snapshots through the given pool.
+     *
+     * <p>Calculators can only share snapshots if their processors are equivalent, so the
+     * processors must be determined only by the contexts and the plugin configuration.</p>
+     *
+     * @param plugin the plugin instance
+     * @param metadata the calculator metadata
+     * @param processors the processors
+     * @param pool the pool to share snapshots through, or null
+     * @param contexts the contexts the processors were built for
+     */
+    public PermissionCalculator(LuckPermsPlugin plugin, PermissionCalculatorMetadata metadata, List<PermissionProcessor> processors, SnapshotPool pool, Contexts contexts) {
+        this.plugin = plugin;
+        this.metadata = metadata;
+        this.pool = pool;
+        this.metrics = plugin.getCalculatorFactory().getCheckMetrics();
+
+        if (pool != null) {
+            ImmutableList.Builder<Class<?>> processorTypes = ImmutableList.builder();
+            for (PermissionProcessor processor : processors) {
+                processorTypes.add(processor.getClass());
+            }
+            this.configuration = ImmutableList.of(contexts, processorTypes.build());
+        } else {
+            this.configuration = null;
+        }
+
+        this.snapshot = new Snapshot(plugin, metrics, ImmutableMap.of(), ImmutableList.copyOf(processors), getCacheStatsCounter());
+    }
+
+    private StatsCounter getCacheStatsCounter() {
+        // hits and misses are attributed to the calculator making the lookup
+        StatsCounter delegate = pool == null ? lookupCacheStats : pool.getLookupCacheStats();
+        return new LoadStatsCounter(delegate);
+    }
+
+    public synchronized void invalidateCache() {
+        snapshot.lookupCache.invalidateAll();
+    }
+
+    /**
+     * Gets a snapshot of the statistics recorded by this calculator.
+     *
+     * <p>If snapshots are shared, only the hits and misses of lookups made through
+     * this calculator are included.</p>
+     *
+     * @return the lookup cache statistics
+     */
+    public CacheStats getLookupCacheStats() {
+        return lookupCacheStats.snapshot();
+    }
+
+    /**
+     * Gets the approximate number of results held in this calculators lookup cache
+     *
+     * @return the estimated size of the lookup cache
+     */
+    public long getLookupCacheSize() {
+        return snapshot.lookupCache.estimatedSize();
+    }
+
+    /**
+     * Gets the map currently backing this calculator
+     *
+     * @return the backing map
+     */
+    public Map<String, Boolean> getBacking() {
+        return snapshot.backing;
+    }
 
-    public void invalidateCache() {
-        lookupCache.invalidateAll();
+    Snapshot getSnapshot() {
+        return snapshot;
     }
 
     public Tristate getPermissionValue(String permission, CheckOrigin origin) {
+        boolean sampled = CheckMetrics.isSampled(++checkCount);
+        long startTime = sampled ? System.nanoTime() : 0L;
 
         // convert the permission to lowercase, as all values in the backing map are also lowercase.
         // this allows fast case insensitive lookups
-        permission = permission.toLowerCase().intern();
+        permission = normaliser.normalise(permission);
 
         // get the result
-        Tristate result = lookupCache.get(permission);
+        LoadingCache<String, Tristate> lookupCache = snapshot.lookupCache;
+        Tristate result = lookupCache.getIfPresent(permission);
+        boolean hit = result != null;
+        if (hit) {
+            lookupCacheStats.recordHits(1);
+        } else {
+            lookupCacheStats.recordMisses(1);
+            result = lookupCache.get(permission);
+        }
+
+        if (sampled) {
+            metrics.recordSampledCheck(origin, hit, System.nanoTime() - startTime);
+        }
 
         // log this permission lookup to the verbose handler
         plugin.getVerboseHandler().offerCheckData(origin, metadata.getObjectName(), metadata.getContext(), permission, result);
@@ -71,29 +209,286 @@ public class PermissionCalculator implements CacheLoader<String, Tristate> {
         return result;
     }
 
-    @Override
-    public Tristate load(String permission) {
-
-        // offer the permission to the permission vault
-        // we only need to do this once per permission, so it doesn't matter
-        // that this call is behind the cache.
-        plugin.getPermissionVault().offer(permission);
+    /**
+     * Gets the values of a number of permissions.
+     *
+     * <p>All of the permissions are checked against the same snapshot, and the checks
+     * are offered to the verbose handler as a single batch. Each check is recorded to the
+     * metrics as taking the mean time of the batch.</p>
+     *
+     * @param permissions the permissions to check, which must already be lowercase
+     * @param results the array to write the results into
+     * @param offset the position in the results array to write the first result
+     * @param origin the origin of the checks
+     */
+    public void getPermissionValues(String[] permissions, Tristate[] results, int offset, CheckOrigin origin) {
+        long startTime = System.nanoTime();
+        LoadingCache<String, Tristate> lookupCache = snapshot.lookupCache;
 
-        for (PermissionProcessor processor : processors) {
-            Tristate result = processor.hasPermission(permission);
-            if (result == Tristate.UNDEFINED) {
-                continue;
+        int hits = 0;
+        for (int i = 0; i < permissions.length; i++) {
+            Tristate result = lookupCache.getIfPresent(permissions[i]);
+            if (result != null) {
+                hits++;
+            } else {
+                result = lookupCache.get(permissions[i]);
             }
+            results[offset + i] = result;
+        }
 
-            return result;
+        lookupCacheStats.recordHits(hits);
+        lookupCacheStats.recordMisses(permissions.length - hits);
+
+        if (permissions.length != 0) {
+            metrics.recordChecks(origin, hits, permissions.length - hits, (System.nanoTime() - startTime) / permissions.length);
         }
 
-        return Tristate.UNDEFINED;
+        plugin.getVerboseHandler().offerCheckData(origin, metadata.getObjectName(), metadata.getContext(), permissions, results, offset);
     }
 
+    /**
+     * Replaces the backing of this calculator.
+     *
+     * <p>The map should not be modified after it has been passed to the calculator.</p>
+     *
+     * @param map the new backing map
+     */
     public synchronized void updateBacking(Map<String, Boolean> map) {
-        for (PermissionProcessor processor : processors) {
-            processor.updateBacking(map);
+        Snapshot previous = snapshot;
+
+        SnapshotPool.Key key = pool == null ? null : new SnapshotPool.Key(configuration, map);
+        if (key != null) {
+            Snapshot shared = pool.get(key);
+            if (shared != null) {
+                snapshot = shared;
+                return;
+            }
+        }
+
+        ImmutableList.Builder<PermissionProcessor> processors = ImmutableList.builder();
+        for (PermissionProcessor processor : previous.processors) {
+            PermissionProcessor copy = processor.copy();
+            copy.updateBacking(map);
+            processors.add(copy);
+        }
+
+        Snapshot next = new Snapshot(plugin, metrics, map, processors.build(), getCacheStatsCounter());
+        if (!previous.lookupCache.asMap().isEmpty()) {
+            next.retainUnaffected(previous, diff(previous.backing, map));
+        }
+        snapshot = key == null ? next : pool.share(key, next);
+    }
+
+    /**
+     * Replaces the backing of this calculator with a map which differs from the
+     * current backing only by the given keys.
+     *
+     * <p>The map should not be modified after it has been passed to the calculator.</p>
+     *
+     * @param map the new backing map
+     * @param changedKeys the keys which were added, removed or changed
+     */
+    public synchronized void updateBacking(Map<String, Boolean> map, Set<String> changedKeys) {
+        Snapshot previous = snapshot;
+
+        SnapshotPool.Key key = pool == null ? null : new SnapshotPool.Key(configuration, map);
+        if (key != null) {
+            Snapshot shared = pool.get(key);
+            if (shared != null) {
+                snapshot = shared;
+                return;
+            }
+        }
+
+        ImmutableList.Builder<PermissionProcessor> processors = ImmutableList.builder();
+        for (PermissionProcessor processor : previous.processors) {
+            PermissionProcessor copy = processor.copy();
+            copy.updateBacking(map, changedKeys);
+            processors.add(copy);
+        }
+
+        Snapshot next = new Snapshot(plugin, metrics, map, processors.build(), getCacheStatsCounter());
+        next.retainUnaffected(previous, changedKeys);
+        snapshot = key == null ? next : pool.share(key, next);
+    }
+
+    /**
+     * Gets the keys which were added, removed or changed between two backing maps
+     *
+     * @param from the previous map
+     * @param to the new map
+     * @return the changed keys
+     */
+    private static Set<String> diff(Map<String, Boolean> from, Map<String, Boolean> to) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, Boolean> e : to.entrySet()) {
+            if (!e.getValue().equals(from.get(e.getKey()))) {
+                changed.add(e.getKey());
+            }
+        }
+        for (String key : from.keySet()) {
+            if (!to.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * The state of the calculator for a given backing map.
+     *
+     * <p>Snapshots may be shared between calculators, so nothing specific to
+     * a single calculator is held here.</p>
+     */
+    static final class Snapshot implements CacheLoader<String, Tristate> {
+        private final LuckPermsPlugin plugin;
+        private final CheckMetrics metrics;
+        private final Map<String, Boolean> backing;
+        private final List<PermissionProcessor> processors;
+
+        // caches lookup calls.
+        private final LoadingCache<String, Tristate> lookupCache;
+
+        private Snapshot(LuckPermsPlugin plugin, CheckMetrics metrics, Map<String, Boolean> backing, List<PermissionProcessor> processors, StatsCounter stats) {
+            this.plugin = plugin;
+            this.metrics = metrics;
+            this.backing = backing;
+            this.processors = processors;
+            this.lookupCache = buildLookupCache(stats);
+        }
+
+        private LoadingCache<String, Tristate> buildLookupCache(StatsCounter stats) {
+            Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats(() -> stats);
+
+            int maxSize = plugin.getConfiguration().get(ConfigKeys.PERMISSION_LOOKUP_CACHE_MAX_SIZE);
+            if (maxSize > 0) {
+                builder.maximumSize(maxSize);
+            }
+
+            int expireAfterAccess = plugin.getConfiguration().get(ConfigKeys.PERMISSION_LOOKUP_CACHE_EXPIRE_AFTER_ACCESS);
+            if (expireAfterAccess > 0) {
+                builder.expireAfterAccess(expireAfterAccess, TimeUnit.MINUTES);
+            }
+
+            return builder.build(this);
+        }
+
+        long getLookupCacheSize() {
+            return lookupCache.estimatedSize();
+        }
+
+        /**
+         * Copies the cached lookups from a previous snapshot into this one, excluding any
+         * which may have been affected by the changes between the two backings.
+         *
+         * <p>A lookup is only affected if the result of one of the processors may have
+         * changed - so if none of them are affected, the overall result is the same.</p>
+         *
+         * @param previous the previous snapshot
+         * @param changedKeys the keys which changed between the two backings
+         */
+        private void retainUnaffected(Snapshot previous, Set<String> changedKeys) {
+            Map<String, Tristate> cached = previous.lookupCache.asMap();
+            if (cached.isEmpty()) {
+                return;
+            }
+
+            List<Predicate<String>> affected = new ArrayList<>(processors.size());
+            for (PermissionProcessor processor : processors) {
+                Predicate<String> predicate = processor.getAffectedPermissions(changedKeys);
+                if (predicate == null) {
+                    // any lookup may have changed
+                    return;
+                }
+                affected.add(predicate);
+            }
+
+            Map<String, Tristate> retained = new HashMap<>(cached.size());
+            for (Map.Entry<String, Tristate> e : cached.entrySet()) {
+                if (!isAffected(affected, e.getKey())) {
+                    retained.put(e.getKey(), e.getValue());
+                }
+            }
+            lookupCache.putAll(retained);
+        }
+
+        @Override
+        public Tristate load(String permission) {
+
+            // offer the permission to the permission vault
+            // we only need to do this once per permission, so it doesn't matter
+            // that this call is behind the cache.
+            plugin.getPermissionVault().offer(permission);
+
+            long startTime = System.nanoTime();
+            for (PermissionProcessor processor : processors) {
+                Tristate result = processor.hasPermission(permission);
+                if (result == Tristate.UNDEFINED) {
+                    continue;
+                }
+
+                metrics.recordCalculation(processor, System.nanoTime() - startTime);
+                return result;
+            }
+
+            metrics.recordCalculation(null, System.nanoTime() - startTime);
+            return Tristate.UNDEFINED;
+        }
+    }
+
+    private static boolean isAffected(List<Predicate<String>> affected, String permission) {
+        for (Predicate<String> predicate : affected) {
+            if (predicate.test(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records the loads and evictions of a lookup cache. Hits and misses are
+     * recorded separately, by the calculator making the lookup.
+     */
+    private static final class LoadStatsCounter implements StatsCounter {
+        private final StatsCounter delegate;
+
+        private LoadStatsCounter(StatsCounter delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void recordHits(int count) {
+
+        }
+
+        @Override
+        public void recordMisses(int count) {
+
+        }
+
+        @Override
+        public void recordLoadSuccess(long loadTime) {
+            delegate.recordLoadSuccess(loadTime);
+        }
+
+        @Override
+        public void recordLoadFailure(long loadTime) {
+            delegate.recordLoadFailure(loadTime);
+        }
+
+        @Override
+        public void recordEviction() {
+            delegate.recordEviction();
+        }
+
+        @Override
+        public void recordEviction(int weight) {
+            delegate.recordEviction(weight);
+        }
+
+        @Override
+        public CacheStats snapshot() {
+            return delegate.snapshot();
         }
     }
 }
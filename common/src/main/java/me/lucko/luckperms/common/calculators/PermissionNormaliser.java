@@ -0,0 +1,90 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.calculators;
+
+/**
+ * Normalises permission strings to lowercase before they are looked up in a {@link PermissionCalculator}.
+ *
+ * <p>Strings which are already lowercase are returned as-is. Other strings are lowercased, and the
+ * result is remembered in a small direct-mapped table keyed by identity, so callers which
+ * repeatedly check the same mixed-case constant don't allocate a new string for every check.</p>
+ */
+final class PermissionNormaliser {
+
+    // the size of the identity table, must be a power of two
+    private static final int TABLE_SIZE = 32;
+
+    // lazily initialised, as most permission checks are already lowercase
+    private Entry[] table = null;
+
+    String normalise(String permission) {
+        if (isLowerCase(permission)) {
+            return permission;
+        }
+
+        Entry[] table = this.table;
+        if (table == null) {
+            table = new Entry[TABLE_SIZE];
+            this.table = table;
+        }
+
+        // entries are immutable, so a racing write can only cause a miss
+        int index = System.identityHashCode(permission) & (TABLE_SIZE - 1);
+        Entry entry = table[index];
+        if (entry != null && entry.original == permission) {
+            return entry.lowercase;
+        }
+
+        String lowercase = permission.toLowerCase();
+        table[index] = new Entry(permission, lowercase);
+        return lowercase;
+    }
+
+    private static boolean isLowerCase(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (c >= 'A' && c <= 'Z') {
+                    return false;
+                }
+            } else if (Character.toLowerCase(c) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Entry {
+        private final String original;
+        private final String lowercase;
+
+        private Entry(String original, String lowercase) {
+            this.original = original;
+            this.lowercase = lowercase;
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.calculators;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+
+import me.lucko.luckperms.common.caching.type.LayeredPermissionMap;
+
+import java.util.Map;
+
+/**
+ * Shares {@link PermissionCalculator} snapshots between calculators with the same
+ * configuration and equal backings.
+ *
+ * <p>Holders with identical effective permissions (for example, many players who only
+ * inherit the default group) can then use a single set of processors and a single warm
+ * lookup cache. Snapshots are only weakly referenced by the pool, so they are released
+ * once no calculator is using them.</p>
+ */
+public class SnapshotPool {
+
+    // snapshots are immutable once shared, so can be safely used by any calculator
+    private final Cache<Key, PermissionCalculator.Snapshot> snapshots = Caffeine.newBuilder()
+            .weakValues()
+            .build();
+
+    // records the loads and evictions of the shared lookup caches
+    private final ConcurrentStatsCounter lookupCacheStats = new ConcurrentStatsCounter();
+
+    PermissionCalculator.Snapshot get(Key key) {
+        return snapshots.getIfPresent(key);
+    }
+
+    /**
+     * Adds a snapshot to the pool, unless an equivalent snapshot has already been added.
+     *
+     * @param key the key of the snapshot
+     * @param snapshot the snapshot
+     * @return the snapshot which should be used
+     */
+    PermissionCalculator.Snapshot share(Key key, PermissionCalculator.Snapshot snapshot) {
+        PermissionCalculator.Snapshot existing = snapshots.asMap().putIfAbsent(key, snapshot);
+        return existing != null ? existing : snapshot;
+    }
+
+    /**
+     * Removes all snapshots from the pool.
+     *
+     * <p>Snapshots which aren't used by any calculator may still hold cached lookups, so
+     * they must not be handed out again once the lookups have been invalidated.</p>
+     */
+    void invalidateAll() {
+        snapshots.invalidateAll();
+    }
+
+    ConcurrentStatsCounter getLookupCacheStats() {
+        return lookupCacheStats;
+    }
+
+    /**
+     * Gets the number of distinct snapshots held in the pool
+     *
+     * @return the number of snapshots
+     */
+    public long getSize() {
+        return snapshots.estimatedSize();
+    }
+
+    /**
+     * Identifies a snapshot by the configuration of the calculator and the content of its backing.
+     *
+     * <p>Layered backings are identified by their structure instead, as a key is made on every
+     * update and hashing their content means checking every inherited permission. Holders which
+     * inherit from the same groups share the same layers, so can still share snapshots.</p>
+     */
+    static final class Key {
+        private final Object configuration;
+        private final Map<String, Boolean> backing;
+        private final int hashCode;
+
+        Key(Object configuration, Map<String, Boolean> backing) {
+            this.configuration = configuration;
+            this.backing = backing;
+            this.hashCode = 31 * configuration.hashCode() + (backing instanceof LayeredPermissionMap ? ((LayeredPermissionMap) backing).structuralHashCode() : backing.hashCode());
+        }
+
+        private boolean sameBacking(Map<String, Boolean> other) {
+            if (backing instanceof LayeredPermissionMap) {
+                return other instanceof LayeredPermissionMap && ((LayeredPermissionMap) backing).hasSameStructure((LayeredPermissionMap) other);
+            }
+            return !(other instanceof LayeredPermissionMap) && backing.equals(other);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof Key)) return false;
+            final Key other = (Key) o;
+            return this.hashCode == other.hashCode && this.configuration.equals(other.configuration) && sameBacking(other.backing);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+}
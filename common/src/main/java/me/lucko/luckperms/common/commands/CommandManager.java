@@ -42,6 +42,7 @@ import me.lucko.luckperms.common.commands.impl.misc.CheckCommand;
 import me.lucko.luckperms.common.commands.impl.misc.ExportCommand;
 import me.lucko.luckperms.common.commands.impl.misc.ImportCommand;
 import me.lucko.luckperms.common.commands.impl.misc.InfoCommand;
+import me.lucko.luckperms.common.commands.impl.misc.MetricsCommand;
 import me.lucko.luckperms.common.commands.impl.misc.NetworkSyncCommand;
 import me.lucko.luckperms.common.commands.impl.misc.ReloadConfigCommand;
 import me.lucko.luckperms.common.commands.impl.misc.SearchCommand;
@@ -99,6 +100,7 @@ public class CommandManager {
                 .add(new SyncCommand(locale))
                 .add(new InfoCommand(locale))
                 .add(new VerboseCommand(locale))
+                .add(new MetricsCommand(locale))
                 .add(new TreeCommand(locale))
                 .add(new SearchCommand(locale))
                 .add(new CheckCommand(locale))
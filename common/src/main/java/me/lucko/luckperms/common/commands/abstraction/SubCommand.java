@@ -196,7 +196,15 @@ public abstract class SubCommand<T> extends Command<T, Void> {
     public static void save(Group group, Sender sender, LuckPermsPlugin plugin) {
         boolean success = plugin.getStorage().noBuffer().saveGroup(group).join();
 
-        if (sender.isImport()) {
+        if (plugin.getConfiguration().get(ConfigKeys.INCREMENTAL_PERMISSION_UPDATES)) {
+            // the loaded group is already up to date, so the changes just need
+            // to be applied to the holders which inherit from it
+            if (sender.isImport()) {
+                group.getRefreshBuffer().request();
+            } else {
+                group.getRefreshBuffer().requestDirectly();
+            }
+        } else if (sender.isImport()) {
             plugin.getUpdateTaskBuffer().request();
         } else {
             plugin.getUpdateTaskBuffer().requestDirectly();
@@ -25,6 +25,10 @@
 
 package me.lucko.luckperms.common.commands.impl.misc;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import me.lucko.luckperms.common.calculators.CalculatorFactory;
+import me.lucko.luckperms.common.calculators.PermissionCalculator;
 import me.lucko.luckperms.common.commands.CommandResult;
 import me.lucko.luckperms.common.commands.abstraction.SingleCommand;
 import me.lucko.luckperms.common.commands.sender.Sender;
@@ -38,12 +42,19 @@ import me.lucko.luckperms.common.messaging.ExtendedMessagingService;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.utils.DateUtil;
 import me.lucko.luckperms.common.utils.Predicates;
+import me.lucko.luckperms.common.verbose.CheckDataBuffer;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class InfoCommand extends SingleCommand {
+
+    // how many of the largest individual lookup caches to display
+    private static final int LARGEST_LOOKUP_CACHES = 3;
+
     public InfoCommand(LocaleManager locale) {
         super(CommandSpec.INFO.spec(locale), "Info", CommandPermission.INFO, Predicates.alwaysFalse());
     }
@@ -81,6 +92,32 @@ public class InfoCommand extends SingleCommand {
                 plugin.getCalculatorFactory().getActiveProcessors().stream().collect(Collectors.joining(", "))
         );
 
+        CalculatorFactory calculatorFactory = plugin.getCalculatorFactory();
+        Set<PermissionCalculator> calculators = calculatorFactory.getCalculators();
+        CacheStats lookupStats = calculatorFactory.getLookupCacheStats();
+
+        Message.EMPTY.send(sender, "&f-  &bLookup Cache:");
+        Message.EMPTY.send(sender, "&f-     &3Size: &a" + calculatorFactory.getLookupCacheSize() + " &7results in &a" + calculators.size() + " &7calculators");
+        Message.EMPTY.send(sender, "&f-     &3Hit Rate: &a" + formatRate(lookupStats.hitRate()) + " &7(&a" + lookupStats.hitCount() + " &7hits)");
+        Message.EMPTY.send(sender, "&f-     &3Miss Rate: &a" + formatRate(lookupStats.missRate()) + " &7(&a" + lookupStats.missCount() + " &7misses)");
+        Message.EMPTY.send(sender, "&f-     &3Evictions: &a" + lookupStats.evictionCount());
+
+        List<PermissionCalculator> largest = calculators.stream()
+                .sorted(Comparator.comparingLong(PermissionCalculator::getLookupCacheSize).reversed())
+                .limit(LARGEST_LOOKUP_CACHES)
+                .collect(Collectors.toList());
+
+        for (PermissionCalculator calculator : largest) {
+            CacheStats stats = calculator.getLookupCacheStats();
+            Message.EMPTY.send(sender, "&f-     &3" + calculator.getMetadata().getObjectName() + ": &a" + calculator.getLookupCacheSize() +
+                    " &7results, &a" + formatRate(stats.hitRate()) + " &7hit rate");
+        }
+
+        CheckDataBuffer verboseBuffer = plugin.getVerboseHandler().getBuffer();
+        Message.EMPTY.send(sender, "&f-  &bVerbose Buffer:");
+        Message.EMPTY.send(sender, "&f-     &3Backlog: &a" + verboseBuffer.size() + " &7/ &a" + verboseBuffer.getCapacity() + " &7checks (peak &a" + verboseBuffer.getPeakBacklog() + "&7)");
+        Message.EMPTY.send(sender, "&f-     &3Dropped: &a" + verboseBuffer.getDroppedCount() + " &7of &a" + verboseBuffer.getOfferedCount() + " &7checks");
+
         Map<String, Object> platformInfo = plugin.getExtraInfo();
         if (!platformInfo.isEmpty()) {
             Message.EMPTY.send(sender, "&f-  &bPlatform Info:");
@@ -92,6 +129,10 @@ public class InfoCommand extends SingleCommand {
         return CommandResult.SUCCESS;
     }
 
+    private static String formatRate(double rate) {
+        return String.format("%.1f%%", rate * 100);
+    }
+
     private static String formatValue(String value) {
         if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
             return CommandUtils.formatBoolean(Boolean.parseBoolean(value));
@@ -0,0 +1,103 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.commands.impl.misc;
+
+import me.lucko.luckperms.api.caching.LatencyDistribution;
+import me.lucko.luckperms.common.commands.CommandResult;
+import me.lucko.luckperms.common.commands.abstraction.SingleCommand;
+import me.lucko.luckperms.common.commands.sender.Sender;
+import me.lucko.luckperms.common.constants.CommandPermission;
+import me.lucko.luckperms.common.locale.CommandSpec;
+import me.lucko.luckperms.common.locale.LocaleManager;
+import me.lucko.luckperms.common.locale.Message;
+import me.lucko.luckperms.common.metrics.CheckMetrics;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.utils.DateUtil;
+import me.lucko.luckperms.common.utils.Predicates;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class MetricsCommand extends SingleCommand {
+    public MetricsCommand(LocaleManager locale) {
+        super(CommandSpec.METRICS.spec(locale), "Metrics", CommandPermission.METRICS, Predicates.alwaysFalse());
+    }
+
+    @Override
+    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, List<String> args, String label) {
+        CheckMetrics.Snapshot metrics = plugin.getCalculatorFactory().getCheckMetrics().snapshot();
+
+        Message.METRICS_HEADER.send(sender, DateUtil.formatTimeShort((System.currentTimeMillis() - metrics.getStartTime()) / 1000L));
+
+        Message.EMPTY.send(sender, "&f-  &bAll Checks: " + formatDistribution(metrics.getChecks(), "checks"));
+        sendDistributions(sender, "Cached Checks", metrics.getCachedChecks(), "checks");
+        sendDistributions(sender, "Uncached Checks", metrics.getUncachedChecks(), "checks");
+        sendDistributions(sender, "Processors", metrics.getProcessors(), "lookups");
+
+        return CommandResult.SUCCESS;
+    }
+
+    private static void sendDistributions(Sender sender, String title, Map<String, LatencyDistribution> distributions, String unit) {
+        Message.EMPTY.send(sender, "&f-  &b" + title + ":");
+
+        // show the most expensive first
+        List<Map.Entry<String, LatencyDistribution>> entries = distributions.entrySet().stream()
+                .filter(e -> e.getValue().getCount() > 0)
+                .sorted(Comparator.comparingLong((Map.Entry<String, LatencyDistribution> e) -> e.getValue().getTotalNanos()).reversed())
+                .collect(Collectors.toList());
+
+        if (entries.isEmpty()) {
+            Message.EMPTY.send(sender, "&f-     &7None recorded");
+            return;
+        }
+
+        for (Map.Entry<String, LatencyDistribution> e : entries) {
+            Message.EMPTY.send(sender, "&f-     &3" + e.getKey() + ": " + formatDistribution(e.getValue(), unit));
+        }
+    }
+
+    private static String formatDistribution(LatencyDistribution distribution, String unit) {
+        return "&a" + distribution.getCount() + " &7" + unit + ", &a" + formatNanos(distribution.getTotalNanos()) + " &7total, " +
+                "mean &a" + formatNanos((long) distribution.getMeanNanos()) + "&7, " +
+                "p99 &a" + formatNanos(distribution.getPercentileNanos(99)) + "&7, " +
+                "max &a" + formatNanos(distribution.getMaxNanos());
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1000L) {
+            return nanos + "ns";
+        }
+        if (nanos < 1000_000L) {
+            return String.format("%.1fus", nanos / 1000d);
+        }
+        if (nanos < 1000_000_000L) {
+            return String.format("%.1fms", nanos / 1000_000d);
+        }
+        return String.format("%.1fs", nanos / 1000_000_000d);
+    }
+}
@@ -46,6 +46,9 @@ public class ReloadConfigCommand extends SingleCommand {
     @Override
     public CommandResult execute(LuckPermsPlugin plugin, Sender sender, List<String> args, String label) throws CommandException {
         plugin.getConfiguration().reload();
+
+        // the server name and world rewrites may have changed
+        plugin.getContextManager().invalidateCaches();
         Message.RELOAD_CONFIG_SUCCESS.send(sender);
         return CommandResult.SUCCESS;
     }
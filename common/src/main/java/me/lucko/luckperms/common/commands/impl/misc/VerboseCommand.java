@@ -47,6 +47,7 @@ import net.kyori.text.format.TextColor;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -65,6 +66,32 @@ public class VerboseCommand extends SingleCommand {
 
         boolean noTraces = args.remove("--notrace") || args.remove("--notraces") || args.remove("--slim") || args.remove("-s");
         boolean attachRaw = args.remove("--raw");
+
+        int sampleRate = 1;
+        for (Iterator<String> it = args.iterator(); it.hasNext(); ) {
+            String arg = it.next();
+            if (!arg.toLowerCase().startsWith("--sample=")) {
+                continue;
+            }
+
+            String value = arg.substring("--sample=".length());
+            try {
+                sampleRate = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                sampleRate = -1;
+            }
+            if (sampleRate < 1) {
+                Message.VERBOSE_INVALID_SAMPLE_RATE.send(sender, value);
+                return CommandResult.INVALID_ARGS;
+            }
+            it.remove();
+        }
+
+        if (args.isEmpty()) {
+            sendUsage(sender, label);
+            return CommandResult.INVALID_ARGS;
+        }
+
         String mode = args.get(0).toLowerCase();
 
         if (mode.equals("on") || mode.equals("true") || mode.equals("record")) {
@@ -75,14 +102,17 @@ public class VerboseCommand extends SingleCommand {
 
             String filter = filters.isEmpty() ? "" : filters.stream().collect(Collectors.joining(" "));
 
-            if (!VerboseFilter.isValidFilter(filter)) {
+            VerboseFilter compiledFilter;
+            try {
+                compiledFilter = VerboseFilter.compile(filter);
+            } catch (IllegalArgumentException e) {
                 Message.VERBOSE_INVALID_FILTER.send(sender, filter);
                 return CommandResult.FAILURE;
             }
 
             boolean notify = !mode.equals("record");
 
-            plugin.getVerboseHandler().registerListener(sender, filter, notify);
+            plugin.getVerboseHandler().registerListener(sender, compiledFilter, notify, sampleRate);
 
             if (notify) {
                 if (!filter.equals("")) {
@@ -98,6 +128,10 @@ public class VerboseCommand extends SingleCommand {
                 }
             }
 
+            if (sampleRate > 1) {
+                Message.VERBOSE_SAMPLING.send(sender, sampleRate);
+            }
+
             return CommandResult.SUCCESS;
         }
 
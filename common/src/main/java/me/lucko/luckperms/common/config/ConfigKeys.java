@@ -246,6 +246,26 @@ public class ConfigKeys {
      */
     public static final ConfigKey<Boolean> APPLY_SPONGE_DEFAULT_SUBJECTS = EnduringKey.wrap(BooleanKey.of("apply-sponge-default-subjects", true));
 
+    /**
+     * The maximum number of results held in the lookup cache of each permission calculator. A value <= 0 removes the limit.
+     */
+    public static final ConfigKey<Integer> PERMISSION_LOOKUP_CACHE_MAX_SIZE = EnduringKey.wrap(IntegerKey.of("permission-lookup-cache.max-size", 5000));
+
+    /**
+     * How many minutes results should be kept in the lookup cache after they were last accessed. A value <= 0 disables expiry.
+     */
+    public static final ConfigKey<Integer> PERMISSION_LOOKUP_CACHE_EXPIRE_AFTER_ACCESS = EnduringKey.wrap(IntegerKey.of("permission-lookup-cache.expire-after-access", 10));
+
+    /**
+     * If single node changes should be applied to cached permission data incrementally, instead of recalculating it
+     */
+    public static final ConfigKey<Boolean> INCREMENTAL_PERMISSION_UPDATES = BooleanKey.of("incremental-permission-updates", false);
+
+    /**
+     * If the inheritances of holders with many inherited groups should be resolved in parallel
+     */
+    public static final ConfigKey<Boolean> PARALLEL_INHERITANCE_RESOLUTION = BooleanKey.of("parallel-inheritance-resolution", false);
+
     /**
      * The configured group weightings
      */
@@ -45,6 +45,7 @@ public enum CommandPermission {
     SYNC("sync", NONE),
     INFO("info", NONE),
     VERBOSE("verbose", NONE),
+    METRICS("metrics", NONE),
     TREE("tree", NONE),
     SEARCH("search", NONE),
     CHECK("check", NONE),
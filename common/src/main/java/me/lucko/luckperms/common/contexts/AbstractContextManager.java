@@ -66,12 +66,26 @@ public abstract class AbstractContextManager<T> implements ContextManager<T> {
             .expireAfterWrite(50L, TimeUnit.MILLISECONDS) // expire roughly every tick
             .build(new Loader());
 
+    // caches context lookups when all calculators are push-based. entries are only removed when invalidated
+    private final LoadingCache<T, Contexts> pushLookupCache = Caffeine.newBuilder()
+            .weakKeys()
+            .build(new Loader());
+
     // caches static context lookups
     private final LoadingCache<Object, Contexts> staticLookupCache = Caffeine.newBuilder()
             .initialCapacity(1)
             .expireAfterWrite(50L, TimeUnit.MILLISECONDS) // expire roughly every tick
             .build(new StaticLoader());
 
+    // caches static context lookups when all static calculators are push-based
+    private final LoadingCache<Object, Contexts> pushStaticLookupCache = Caffeine.newBuilder()
+            .initialCapacity(1)
+            .build(new StaticLoader());
+
+    // if all registered calculators are push-based
+    private volatile boolean pushBased = true;
+    private volatile boolean staticPushBased = true;
+
     // the single key used in the static lookup cache
     private final Object staticCacheKey = new Object();
 
@@ -94,7 +108,7 @@ public abstract class AbstractContextManager<T> implements ContextManager<T> {
 
     @Override
     public Contexts getApplicableContexts(@NonNull T subject) {
-        return lookupCache.get(subject);
+        return (pushBased ? pushLookupCache : lookupCache).get(subject);
     }
 
     @Override
@@ -106,7 +120,7 @@ public abstract class AbstractContextManager<T> implements ContextManager<T> {
 
     @Override
     public Contexts getStaticContexts() {
-        return staticLookupCache.get(staticCacheKey);
+        return (staticPushBased ? pushStaticLookupCache : staticLookupCache).get(staticCacheKey);
     }
 
     @Override
@@ -143,6 +157,7 @@ public abstract class AbstractContextManager<T> implements ContextManager<T> {
     public void registerCalculator(ContextCalculator<T> calculator) {
         // calculators registered first should have priority (and be checked last.)
         calculators.add(0, calculator);
+        onCalculatorsChange();
     }
 
     @Override
@@ -151,11 +166,29 @@ public abstract class AbstractContextManager<T> implements ContextManager<T> {
         registerCalculator((ContextCalculator<T>) calculator);
 
         staticCalculators.add(0, calculator);
+        onCalculatorsChange();
+    }
+
+    private void onCalculatorsChange() {
+        pushBased = calculators.stream().allMatch(ContextCalculator::isPushBased);
+        staticPushBased = staticCalculators.stream().allMatch(ContextCalculator::isPushBased);
+
+        // existing lookups don't include the new calculator
+        invalidateCaches();
     }
 
     @Override
     public void invalidateCache(@NonNull T subject){
         lookupCache.invalidate(subject);
+        pushLookupCache.invalidate(subject);
+    }
+
+    @Override
+    public void invalidateCaches() {
+        lookupCache.invalidateAll();
+        pushLookupCache.invalidateAll();
+        staticLookupCache.invalidateAll();
+        pushStaticLookupCache.invalidateAll();
     }
 
     @Override
@@ -124,6 +124,11 @@ public interface ContextManager<T> {
      */
     void invalidateCache(T subject);
 
+    /**
+     * Invalidates the lookup cache for all subjects, and the static lookup cache
+     */
+    void invalidateCaches();
+
     /**
      * Gets the number of calculators registered with the manager.
      *
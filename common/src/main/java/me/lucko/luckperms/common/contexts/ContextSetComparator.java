@@ -27,10 +27,8 @@ package me.lucko.luckperms.common.contexts;
 
 import me.lucko.luckperms.api.context.ImmutableContextSet;
 
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 
 public class ContextSetComparator implements Comparator<ImmutableContextSet> {
@@ -48,7 +46,8 @@ public class ContextSetComparator implements Comparator<ImmutableContextSet> {
 
     @Override
     public int compare(ImmutableContextSet o1, ImmutableContextSet o2) {
-        if (o1.equals(o2)) {
+        // immutable sets are canonicalised, so equal sets are always the same instance
+        if (o1 == o2) {
             return 0;
         }
 
@@ -74,21 +73,12 @@ public class ContextSetComparator implements Comparator<ImmutableContextSet> {
         // comparator is used in the PermissionHolder nodes treemap
 
         // in order to have consistent ordering, we have to compare the content of the context sets by ordering the
-        // elements and then comparing which set is greater.
-        List<Map.Entry<String, String>> o1Map = new ArrayList<>(o1.toSet());
-        List<Map.Entry<String, String>> o2Map = new ArrayList<>(o2.toSet());
-        o1Map.sort(STRING_ENTRY_COMPARATOR);
-        o2Map.sort(STRING_ENTRY_COMPARATOR);
-
-        int o1MapSize = o1Map.size();
-        int o2MapSize = o2Map.size();
-        if (o1MapSize != o2MapSize) {
-            return o1MapSize > o2MapSize ? 1 : -1;
-        }
+        // elements and then comparing which set is greater. immutable sets already hold their entries in this order,
+        // so they can be walked directly.
 
         // size is definitely the same
-        Iterator<Map.Entry<String, String>> it1 = o1Map.iterator();
-        Iterator<Map.Entry<String, String>> it2 = o2Map.iterator();
+        Iterator<Map.Entry<String, String>> it1 = o1.toSet().iterator();
+        Iterator<Map.Entry<String, String>> it2 = o2.toSet().iterator();
 
         while (it1.hasNext()) {
             Map.Entry<String, String> ent1 = it1.next();
@@ -48,4 +48,10 @@ public class LuckPermsCalculator implements StaticContextCalculator {
         return accumulator;
     }
 
+    @Override
+    public boolean isPushBased() {
+        // only changes when the config is reloaded
+        return true;
+    }
+
 }
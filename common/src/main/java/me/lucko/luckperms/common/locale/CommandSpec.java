@@ -55,9 +55,11 @@ public enum CommandSpec {
             Arg.list(
                     Arg.create("on|record|off|paste", true, "whether to enable/disable logging, or to paste the logged output"),
                     Arg.create("filter", false, "the filter to match entries against"),
-                    Arg.create("--slim", false, "add \"--slim\" to exclude trace data from the pasted output")
+                    Arg.create("--slim", false, "add \"--slim\" to exclude trace data from the pasted output"),
+                    Arg.create("--sample=<n>", false, "only sample 1 in every n checks, to reduce the overhead on busy servers")
             )
     ),
+    METRICS("Print the time taken by permission checks", "/%s metrics"),
     TREE("Generate a tree view of permissions", "/%s tree [selection] [max level] [player]",
             Arg.list(
                     Arg.create("selection", false, "the root of the tree. specify \".\" to include all permissions"),
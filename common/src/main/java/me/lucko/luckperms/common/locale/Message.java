@@ -97,12 +97,14 @@ public enum Message {
      * Commands
      */
     VERBOSE_INVALID_FILTER("&4{}&c is not a valid verbose filter.", true),
+    VERBOSE_INVALID_SAMPLE_RATE("&4{}&c is not a valid sample rate. It must be a whole number greater than 0.", true),
     VERBOSE_ON("&bVerbose logging &aenabled &bfor checks matching &aANY&b.", true),
     VERBOSE_ON_QUERY("&bVerbose logging &aenabled &bfor checks matching &a{}&b.", true),
     VERBOSE_OFF("&bVerbose logging &cdisabled&b.", true),
 
     VERBOSE_RECORDING_ON("&bVerbose recording &aenabled &bfor checks matching &aANY&b.", true),
     VERBOSE_RECORDING_ON_QUERY("&bVerbose recording &aenabled &bfor checks matching &a{}&b.", true),
+    VERBOSE_SAMPLING("&bOnly &a1 &bin every &a{} &bchecks will be sampled.", true),
     VERBOSE_UPLOAD_START("&bVerbose logging &cdisabled&b. Uploading results...", true),
     VERBOSE_RESULTS_URL("&aVerbose results URL:", true),
 
@@ -186,6 +188,7 @@ public enum Message {
             "{PREFIX}&f-     &3Active processors: &7{10}",
             false
     ),
+    METRICS_HEADER("&aPermission check metrics &7(recorded over {})", true),
 
     CREATE_ERROR("&cThere was an error whilst creating &4{}&c.", true),
     DELETE_ERROR("&cThere was an error whilst deleting &4{}&c.", true),
@@ -0,0 +1,206 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.metrics;
+
+import com.google.common.collect.ImmutableMap;
+
+import me.lucko.luckperms.api.caching.LatencyDistribution;
+import me.lucko.luckperms.api.caching.PermissionCheckMetrics;
+import me.lucko.luckperms.common.processors.PermissionProcessor;
+import me.lucko.luckperms.common.verbose.CheckOrigin;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Records the time taken by permission checks.
+ *
+ * <p>Checks are recorded by origin, and by whether they were answered from a lookup
+ * cache. Calculating the result of uncached checks is also recorded, by the processor
+ * which determined the result.</p>
+ *
+ * <p>Recording is cheap enough to be left enabled. Reading the clock costs about as
+ * much as a cached check, so only 1 in every {@link #SAMPLE_RATE} single checks is
+ * timed, and each sampled check is counted {@link #SAMPLE_RATE} times. Calculations
+ * take far longer than reading the clock, so every one of them is timed.</p>
+ */
+public class CheckMetrics {
+    private static final CheckOrigin[] ORIGINS = CheckOrigin.values();
+
+    /**
+     * The rate at which single checks are sampled. Must be a power of two.
+     */
+    public static final int SAMPLE_RATE = 16;
+
+    /**
+     * Gets if a check should be timed
+     *
+     * @param checkCount the number of checks made by the caller, including this one
+     * @return true if the check should be timed
+     */
+    public static boolean isSampled(int checkCount) {
+        return (checkCount & (SAMPLE_RATE - 1)) == 0;
+    }
+
+    private final long startTime = System.currentTimeMillis();
+
+    // indexed by origin ordinal
+    private final LatencyHistogram[] cached = new LatencyHistogram[ORIGINS.length];
+    private final LatencyHistogram[] uncached = new LatencyHistogram[ORIGINS.length];
+
+    private final Map<Class<?>, LatencyHistogram> processors = new ConcurrentHashMap<>();
+    private final LatencyHistogram undefined = new LatencyHistogram();
+
+    public CheckMetrics() {
+        for (int i = 0; i < ORIGINS.length; i++) {
+            cached[i] = new LatencyHistogram();
+            uncached[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records a sampled permission check, standing in for {@link #SAMPLE_RATE} checks
+     *
+     * @param origin the origin of the check
+     * @param cacheHit if the result was found in a lookup cache
+     * @param nanos the time taken by the check
+     */
+    public void recordSampledCheck(CheckOrigin origin, boolean cacheHit, long nanos) {
+        (cacheHit ? cached : uncached)[origin.ordinal()].record(nanos, SAMPLE_RATE);
+    }
+
+    /**
+     * Records a batch of permission checks, each taking the same time
+     *
+     * @param origin the origin of the checks
+     * @param hits the number of checks which were found in a lookup cache
+     * @param misses the number of checks which were not
+     * @param nanos the time taken by each check
+     */
+    public void recordChecks(CheckOrigin origin, int hits, int misses, long nanos) {
+        cached[origin.ordinal()].record(nanos, hits);
+        uncached[origin.ordinal()].record(nanos, misses);
+    }
+
+    /**
+     * Records the calculation of a permissions result
+     *
+     * @param processor the processor which determined the result, or null if none did
+     * @param nanos the time taken by the calculation
+     */
+    public void recordCalculation(PermissionProcessor processor, long nanos) {
+        if (processor == null) {
+            undefined.record(nanos);
+            return;
+        }
+
+        Class<?> type = processor.getClass();
+        LatencyHistogram histogram = processors.get(type);
+        if (histogram == null) {
+            histogram = processors.computeIfAbsent(type, t -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Takes a snapshot of the checks recorded so far
+     *
+     * @return a snapshot
+     */
+    public Snapshot snapshot() {
+        ImmutableMap.Builder<String, LatencyDistribution> cached = ImmutableMap.builder();
+        ImmutableMap.Builder<String, LatencyDistribution> uncached = ImmutableMap.builder();
+        LatencyHistogram.Snapshot checks = LatencyHistogram.Snapshot.empty();
+
+        for (CheckOrigin origin : ORIGINS) {
+            String name = origin.name().toLowerCase();
+
+            LatencyHistogram.Snapshot hits = this.cached[origin.ordinal()].snapshot();
+            LatencyHistogram.Snapshot misses = this.uncached[origin.ordinal()].snapshot();
+            cached.put(name, hits);
+            uncached.put(name, misses);
+            checks = checks.plus(hits).plus(misses);
+        }
+
+        ImmutableMap.Builder<String, LatencyDistribution> processors = ImmutableMap.builder();
+        for (Map.Entry<Class<?>, LatencyHistogram> e : this.processors.entrySet()) {
+            processors.put(e.getKey().getSimpleName(), e.getValue().snapshot());
+        }
+        processors.put("undefined", undefined.snapshot());
+
+        return new Snapshot(startTime, checks, cached.build(), uncached.build(), processors.build());
+    }
+
+    /**
+     * An immutable copy of the metrics recorded so far.
+     */
+    public static final class Snapshot implements PermissionCheckMetrics {
+        private final long startTime;
+        private final LatencyDistribution checks;
+        private final Map<String, LatencyDistribution> cachedChecks;
+        private final Map<String, LatencyDistribution> uncachedChecks;
+        private final Map<String, LatencyDistribution> processors;
+
+        private Snapshot(long startTime, LatencyDistribution checks, Map<String, LatencyDistribution> cachedChecks, Map<String, LatencyDistribution> uncachedChecks, Map<String, LatencyDistribution> processors) {
+            this.startTime = startTime;
+            this.checks = checks;
+            this.cachedChecks = cachedChecks;
+            this.uncachedChecks = uncachedChecks;
+            this.processors = processors;
+        }
+
+        @Override
+        public long getStartTime() {
+            return startTime;
+        }
+
+        @Nonnull
+        @Override
+        public LatencyDistribution getChecks() {
+            return checks;
+        }
+
+        @Nonnull
+        @Override
+        public Map<String, LatencyDistribution> getCachedChecks() {
+            return cachedChecks;
+        }
+
+        @Nonnull
+        @Override
+        public Map<String, LatencyDistribution> getUncachedChecks() {
+            return uncachedChecks;
+        }
+
+        @Nonnull
+        @Override
+        public Map<String, LatencyDistribution> getProcessors() {
+            return processors;
+        }
+    }
+}
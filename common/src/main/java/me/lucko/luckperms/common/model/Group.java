@@ -25,22 +25,41 @@
 
 package me.lucko.luckperms.common.model;
 
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.api.LocalizedNode;
 import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.common.api.delegates.model.ApiGroup;
 import me.lucko.luckperms.common.buffers.BufferedRequest;
+import me.lucko.luckperms.common.buffers.Cache;
 import me.lucko.luckperms.common.caching.GroupCachedData;
+import me.lucko.luckperms.common.caching.handlers.NodeChangeTracker;
 import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.node.ImmutableLocalizedNode;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.references.GroupReference;
+import me.lucko.luckperms.common.references.HolderReference;
+import me.lucko.luckperms.common.references.HolderType;
 import me.lucko.luckperms.common.references.Identifiable;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @ToString(of = {"name"})
 @EqualsAndHashCode(of = {"name"}, callSuper = false)
@@ -64,6 +83,29 @@ public class Group extends PermissionHolder implements Identifiable<String> {
     @Getter
     private BufferedRequest<Void> refreshBuffer;
 
+    /**
+     * Incremented each time the resolved nodes of this group become out of date, so nodes
+     * resolved concurrently with the change can be detected and discarded
+     */
+    private volatile long resolvedNodesStamp = 0;
+
+    /**
+     * The nodes of this group, and the names of its parents, resolved in each set of contexts
+     */
+    private final LoadingCache<Contexts, ResolvedNodes> resolvedNodes = Caffeine.newBuilder()
+            .expireAfterAccess(2, TimeUnit.MINUTES)
+            .build(this::resolveNodes);
+
+    /**
+     * All of the nodes of this group, and the names of its parents, regardless of context
+     */
+    private final Cache<ResolvedNodes> allResolvedNodes = new Cache<ResolvedNodes>() {
+        @Override
+        protected ResolvedNodes supply() {
+            return resolveNodes(null);
+        }
+    };
+
     public Group(String name, LuckPermsPlugin plugin) {
         super(name, plugin);
         this.name = name.toLowerCase();
@@ -74,6 +116,9 @@ public class Group extends PermissionHolder implements Identifiable<String> {
 
         // invalidate out caches when data is updated
         getStateListeners().add(() -> refreshBuffer.request());
+
+        // the resolved nodes & permissions of this group, and of any groups inheriting from it, are now out of date
+        getStateListeners().add(this::invalidateResolvedData);
     }
 
     @Override
@@ -111,12 +156,213 @@ public class Group extends PermissionHolder implements Identifiable<String> {
         return GroupReference.of(getId());
     }
 
+    /**
+     * Gets the loaded groups which inherit from this group, either directly or via other groups.
+     *
+     * @return the dependant groups
+     */
+    public List<Group> getDependantGroups() {
+        List<Group> groups = new ArrayList<>();
+        for (HolderReference ref : getPlugin().getCachedStateManager().getInheritances(toReference())) {
+            if (ref.getType() != HolderType.GROUP) {
+                continue;
+            }
+
+            Group group = getPlugin().getGroupManager().getIfLoaded(((GroupReference) ref).getId());
+            if (group != null && group != this) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    private void invalidateResolvedData() {
+        invalidateResolvedNodes();
+        cachedData.invalidateResolvedPermissions();
+        for (Group group : getDependantGroups()) {
+            group.invalidateResolvedNodes();
+            group.getCachedData().invalidateResolvedPermissions();
+        }
+    }
+
+    private void invalidateResolvedNodes() {
+        resolvedNodesStamp++;
+        resolvedNodes.invalidateAll();
+        allResolvedNodes.invalidate();
+    }
+
+    /**
+     * Gets the nodes of this group, and the names of the groups it inherits from, resolved in
+     * the given contexts.
+     *
+     * @param context the contexts to resolve in, or null to resolve all nodes
+     * @return the resolved nodes
+     */
+    ResolvedNodes getResolvedNodes(Contexts context) {
+        if (context == null) {
+            return allResolvedNodes.get();
+        }
+
+        ResolvedNodes ret = resolvedNodes.get(context);
+        if (ret.stamp != resolvedNodesStamp) {
+            // resolved from state which changed whilst it was being loaded
+            ret = resolveNodes(context);
+            resolvedNodes.put(context, ret);
+        }
+        return ret;
+    }
+
+    private ResolvedNodes resolveNodes(Contexts context) {
+        long stamp = resolvedNodesStamp;
+
+        List<Node> nodes = context == null ? getOwnNodes() : filterNodes(context.getContexts());
+        ImmutableList.Builder<LocalizedNode> localizedNodes = ImmutableList.builder();
+        for (Node node : nodes) {
+            localizedNodes.add(ImmutableLocalizedNode.of(node, getObjectName()));
+        }
+
+        // sorting and then excluding groups gives the same order as excluding and then sorting,
+        // so the exclusions can be applied as the parents are used.
+        ImmutableList.Builder<String> parents = ImmutableList.builder();
+        for (Group parent : resolveParents(nodes, Collections.emptySet(), context)) {
+            parents.add(parent.getName());
+        }
+
+        return new ResolvedNodes(stamp, localizedNodes.build(), parents.build());
+    }
+
+    /**
+     * Adds the nodes of this group, and of the groups it inherits from, to the accumulator.
+     *
+     * <p>Equivalent to {@link PermissionHolder#resolveInheritances(Consumer, Set, Contexts)}, but
+     * reuses the nodes resolved for the group in previous calls.</p>
+     *
+     * @param accumulator the consumer to pass resolved nodes to
+     * @param excludedGroups the groups to exclude, added to as groups are resolved
+     * @param context the contexts to resolve in, or null to resolve all nodes
+     */
+    void accumulateInheritances(Consumer<? super LocalizedNode> accumulator, Set<String> excludedGroups, Contexts context) {
+        excludedGroups.add(name);
+
+        ResolvedNodes resolved = getResolvedNodes(context);
+        resolved.getNodes().forEach(accumulator);
+
+        // the parents to process are determined before any of them are, as they are when resolving serially
+        for (Group parent : resolved.getParents(getPlugin(), excludedGroups)) {
+            parent.accumulateInheritances(accumulator, excludedGroups, context);
+        }
+    }
+
     private CompletableFuture<Void> reloadCachedData() {
         return CompletableFuture.allOf(cachedData.reloadPermissions(), cachedData.reloadMeta()).thenAccept(n -> {
             getPlugin().getApiProvider().getEventFactory().handleGroupDataRecalculate(this, cachedData);
         });
     }
 
+    /**
+     * Applies the changes made to this group to its own cached data, and to that
+     * of the loaded holders which inherit from it.
+     *
+     * <p>Changes which can't be applied incrementally cause the group to be reloaded, and
+     * a full refresh of each dependant holder to be requested. Those refreshes are not
+     * passed on any further, so circular inheritance can't cause a refresh loop.</p>
+     *
+     * @param changes the changes made to the group
+     * @return a future which completes when the changes have been applied
+     */
+    private CompletableFuture<Void> applyChanges(NodeChangeTracker.Changes changes) {
+        if (changes.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // only groups which inherit from this group can be affected
+        List<Group> groups = getDependantGroups();
+
+        if (changes.isFullRecalculation()) {
+            // the group which changed has already requested a refresh of every dependant
+            if (changes.isInherited()) {
+                return reloadCachedData();
+            }
+
+            for (Group group : groups) {
+                requestFullRefresh(group);
+            }
+            for (User user : getPlugin().getUserManager().getAll().values()) {
+                requestFullRefresh(user);
+            }
+            return reloadCachedData();
+        }
+
+        groups.add(this);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Group group : groups) {
+            futures.add(group.getCachedData().applyChanges(this, changes).thenAccept(affected -> {
+                if (affected) {
+                    getPlugin().getApiProvider().getEventFactory().handleGroupDataRecalculate(group, group.getCachedData());
+                }
+            }));
+        }
+        for (User user : getPlugin().getUserManager().getAll().values()) {
+            futures.add(user.getCachedData().applyChanges(this, changes).thenAccept(affected -> {
+                if (affected) {
+                    getPlugin().getApiProvider().getEventFactory().handleUserDataRecalculate(user, user.getCachedData());
+                }
+            }));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]));
+    }
+
+    private void requestFullRefresh(PermissionHolder holder) {
+        if (holder != this && holder.getCachedData().dependsOn(this)) {
+            // buffered, so holders inheriting from many changed groups are only refreshed once
+            holder.getChangeTracker().recordInheritedChange();
+            holder.getRefreshBuffer().request();
+        }
+    }
+
+    /**
+     * The nodes of a group, and the names of the groups it inherits from, resolved in a set of contexts
+     */
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    static final class ResolvedNodes {
+        private final long stamp;
+
+        /**
+         * The groups own nodes
+         */
+        @Getter
+        private final List<LocalizedNode> nodes;
+
+        /**
+         * The names of the groups parents, in the order they are applied, without any exclusions
+         */
+        @Getter
+        private final List<String> parentNames;
+
+        /**
+         * Gets the loaded parent groups, in the order they are applied
+         *
+         * @param plugin the plugin instance
+         * @param excludedGroups the groups to exclude
+         * @return the parents
+         */
+        List<Group> getParents(LuckPermsPlugin plugin, Set<String> excludedGroups) {
+            List<Group> parents = new ArrayList<>(parentNames.size());
+            for (String parentName : parentNames) {
+                if (excludedGroups.contains(parentName)) {
+                    continue;
+                }
+
+                Group parent = plugin.getGroupManager().getIfLoaded(parentName);
+                if (parent != null) {
+                    parents.add(parent);
+                }
+            }
+            return parents;
+        }
+    }
+
     private static final class GroupRefreshBuffer extends BufferedRequest<Void> {
         private final Group group;
 
@@ -127,7 +373,21 @@ public class Group extends PermissionHolder implements Identifiable<String> {
 
         @Override
         protected Void perform() {
-            return group.reloadCachedData().join();
+            NodeChangeTracker.Changes changes = group.getChangeTracker().drain();
+            if (group.getPlugin().getConfiguration().get(ConfigKeys.INCREMENTAL_PERMISSION_UPDATES)) {
+                // a refresh requested without any recorded changes, e.g. after a sync, reloads everything
+                return group.applyChanges(changes.isEmpty() ? NodeChangeTracker.Changes.FULL : changes).join();
+            }
+
+            // the groups inheriting from this group are now out of date too. the dependants are
+            // already the full closure, so they're reloaded directly - requesting their own refresh
+            // would cascade again, and never stop if the inheritance is circular
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            futures.add(group.reloadCachedData());
+            for (Group dependant : group.getDependantGroups()) {
+                futures.add(dependant.reloadCachedData());
+            }
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
         }
     }
 
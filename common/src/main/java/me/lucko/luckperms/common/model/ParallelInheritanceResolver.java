@@ -0,0 +1,134 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Resolves the nodes of large group graphs using a fork-join pool.
+ *
+ * <p>The nodes and parents of every reachable group are resolved in parallel, and cached by
+ * each group. The cached results are then walked on the calling thread in exactly the order
+ * the serial resolver in {@link PermissionHolder} would visit them, so the output is identical.</p>
+ */
+final class ParallelInheritanceResolver {
+
+    /**
+     * The minimum number of inherited groups before resolution is done in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 16;
+
+    /**
+     * Gets if the groups inherited via the given parents should be resolved in parallel
+     *
+     * @param plugin the plugin instance
+     * @param parents the parents being resolved
+     * @return true if the parents should be resolved in parallel
+     */
+    static boolean shouldResolveInParallel(LuckPermsPlugin plugin, List<Group> parents) {
+        if (parents.isEmpty() || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            return false;
+        }
+        if (!plugin.getConfiguration().get(ConfigKeys.PARALLEL_INHERITANCE_RESOLUTION)) {
+            return false;
+        }
+
+        // an upper bound - groups inherited via more than one parent are counted more than once
+        int groups = 0;
+        for (Group parent : parents) {
+            groups += 1 + plugin.getCachedStateManager().getInheritedGroups(parent.toReference()).size();
+            if (groups >= PARALLEL_THRESHOLD) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final Contexts context;
+
+    // the groups which have already been submitted to be resolved
+    private final Set<Group> submitted = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a new resolver
+     *
+     * @param context the contexts to resolve in, or null to resolve all nodes
+     */
+    ParallelInheritanceResolver(Contexts context) {
+        this.context = context;
+    }
+
+    /**
+     * Resolves the nodes of the given parents, and of every group they inherit from.
+     *
+     * @param parents the parents to resolve
+     */
+    void resolve(List<Group> parents) {
+        List<ResolveTask> tasks = submit(parents);
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+    }
+
+    private List<ResolveTask> submit(List<Group> groups) {
+        List<ResolveTask> tasks = new ArrayList<>(groups.size());
+        for (Group group : groups) {
+            if (submitted.add(group)) {
+                tasks.add(new ResolveTask(group));
+            }
+        }
+        return tasks;
+    }
+
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    private final class ResolveTask extends RecursiveAction {
+        private final Group group;
+
+        @Override
+        protected void compute() {
+            Group.ResolvedNodes resolved = group.getResolvedNodes(context);
+            ForkJoinTask.invokeAll(submit(resolved.getParents(group.getPlugin(), Collections.emptySet())));
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.common.caching.type.CompactPermissionMap;
+
+import java.util.Map;
+
+/**
+ * Exports permissions from nodes as they are resolved, keeping the first value set
+ * for each permission.
+ *
+ * <p>{@link #accept(Node)} is passed as the accumulator when resolving inheritances, so
+ * the resolved nodes are never collected into an intermediate list.</p>
+ */
+final class PermissionExporter {
+    private final CompactPermissionMap.Builder permissions = CompactPermissionMap.builder();
+
+    /**
+     * The contexts used to exclude global nodes, or null if no nodes should be excluded
+     */
+    private final Contexts context;
+    private final boolean lowerCase;
+    private final boolean intern;
+    private final boolean applyShorthand;
+
+    /**
+     * Creates a new exporter
+     *
+     * @param context the contexts used to exclude global nodes, or null if no nodes should be excluded
+     * @param lowerCase if the permissions should be converted to lowercase
+     * @param intern if the permissions should be interned
+     * @param applyShorthand if the permissions set by shorthand nodes should be exported
+     */
+    PermissionExporter(Contexts context, boolean lowerCase, boolean intern, boolean applyShorthand) {
+        this.context = context;
+        this.lowerCase = lowerCase;
+        this.intern = intern;
+        this.applyShorthand = applyShorthand;
+    }
+
+    /**
+     * Exports the permissions set by the given node, unless they have already been set
+     *
+     * @param node the node
+     */
+    void accept(Node node) {
+        if (context != null && !node.isGroupNode()) {
+            if (!context.isIncludeGlobal() && !node.isServerSpecific()) {
+                return;
+            }
+            if (!context.isApplyGlobalWorldGroups() && !node.isWorldSpecific()) {
+                return;
+            }
+        }
+
+        String perm = lowerCase ? node.getPermission().toLowerCase() : node.getPermission();
+        if (intern) {
+            perm = perm.intern();
+        }
+
+        if (permissions.putIfAbsent(perm, node.getValuePrimitive()) && applyShorthand) {
+            for (String s : node.resolveShorthand()) {
+                String sh = lowerCase ? s.toLowerCase() : s;
+                permissions.putIfAbsent(intern ? sh.intern() : sh, node.getValuePrimitive());
+            }
+        }
+    }
+
+    /**
+     * Gets the exported permissions. No more nodes can be accepted once called.
+     *
+     * @return the permissions
+     */
+    Map<String, Boolean> export() {
+        return permissions.build();
+    }
+}
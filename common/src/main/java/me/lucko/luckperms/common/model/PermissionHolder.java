@@ -30,7 +30,7 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 import com.google.common.collect.ImmutableCollection;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Maps;
@@ -49,6 +49,7 @@ import me.lucko.luckperms.common.api.delegates.model.ApiPermissionHolder;
 import me.lucko.luckperms.common.buffers.BufferedRequest;
 import me.lucko.luckperms.common.buffers.Cache;
 import me.lucko.luckperms.common.caching.HolderCachedData;
+import me.lucko.luckperms.common.caching.handlers.NodeChangeTracker;
 import me.lucko.luckperms.common.caching.handlers.StateListener;
 import me.lucko.luckperms.common.caching.type.MetaAccumulator;
 import me.lucko.luckperms.common.config.ConfigKeys;
@@ -57,6 +58,7 @@ import me.lucko.luckperms.common.node.ImmutableLocalizedNode;
 import me.lucko.luckperms.common.node.InheritanceInfo;
 import me.lucko.luckperms.common.node.MetaType;
 import me.lucko.luckperms.common.node.NodeComparator;
+import me.lucko.luckperms.common.node.NodeContextIndex;
 import me.lucko.luckperms.common.node.NodeFactory;
 import me.lucko.luckperms.common.node.NodeTools;
 import me.lucko.luckperms.common.node.NodeWithContextComparator;
@@ -67,8 +69,8 @@ import me.lucko.luckperms.common.references.HolderReference;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -83,6 +85,7 @@ import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -199,6 +202,41 @@ public abstract class PermissionHolder {
     }
     private final WeightCache weightCache = new WeightCache();
 
+    /**
+     * Caches an index of the holders own nodes, keyed by the lowercase permissions they set,
+     * either directly or via shorthand. The nodes for each permission are kept in priority order.
+     */
+    private final class PermissionIndexCache extends Cache<ImmutableListMultimap<String, Node>> {
+        @Override
+        protected ImmutableListMultimap<String, Node> supply() {
+            ImmutableListMultimap.Builder<String, Node> builder = ImmutableListMultimap.builder();
+            for (Node node : getOwnNodes()) {
+                String permission = node.getPermission().toLowerCase();
+                builder.put(permission, node);
+
+                for (String s : node.resolveShorthand()) {
+                    String shorthand = s.toLowerCase();
+                    if (!shorthand.equals(permission)) {
+                        builder.put(shorthand, node);
+                    }
+                }
+            }
+            return builder.build();
+        }
+    }
+    private final PermissionIndexCache permissionIndex = new PermissionIndexCache();
+
+    /**
+     * Caches an index of the holders own nodes, by the contexts they apply in
+     */
+    private final class ContextIndexCache extends Cache<NodeContextIndex> {
+        @Override
+        protected NodeContextIndex supply() {
+            return NodeContextIndex.of(getTransientNodes(), getEnduringNodes());
+        }
+    }
+    private final ContextIndexCache contextIndex = new ContextIndexCache();
+
     // used to ensure thread safe access to the backing transientNodes map
     private final ReentrantLock transientNodesLock = new ReentrantLock();
 
@@ -219,10 +257,28 @@ public abstract class PermissionHolder {
     @Getter
     private final Set<StateListener> stateListeners = ConcurrentHashMap.newKeySet();
 
+    /**
+     * Records the nodes changed since the holders cached data was last refreshed
+     */
+    @Getter
+    private final NodeChangeTracker changeTracker = new NodeChangeTracker();
+
     private void invalidateCache() {
+        changeTracker.recordFullChange();
+        handleStateChange();
+    }
+
+    private void invalidateCache(Node changedNode) {
+        changeTracker.recordChange(changedNode);
+        handleStateChange();
+    }
+
+    private void handleStateChange() {
         nodesCopy.invalidate();
         transientNodesCopy.invalidate();
         weightCache.invalidate();
+        permissionIndex.invalidate();
+        contextIndex.invalidate();
 
         // Invalidate listeners
         for (StateListener listener : stateListeners) {
@@ -238,8 +294,8 @@ public abstract class PermissionHolder {
     }
 
     protected void declareState() {
-        /* only declare state of groups. the state manager isn't really being used now the caches in this class
-           are gone, but it's useful for command output. */
+        /* only declare state of groups. the state manager is used to find the groups which need to be
+           invalidated when a group they inherit from changes. */
         if (this instanceof Group) {
             plugin.getCachedStateManager().putAll(toReference(), getGroupReferences());
         }
@@ -420,23 +476,23 @@ public abstract class PermissionHolder {
         return ret;
     }
 
+    /**
+     * Gets the holders own nodes which set the given permission, either directly or via
+     * shorthand, in the order they are applied.
+     *
+     * @param permission the permission, in lowercase
+     * @return the nodes
+     */
+    public List<Node> getOwnNodesSetting(String permission) {
+        return permissionIndex.get().get(permission);
+    }
+
     public List<Node> filterEnduringNodes(ContextSet filter) {
         return filterEnduringNodes(new ArrayList<>(), filter);
     }
 
     public <C extends Collection<Node>> C filterEnduringNodes(C ret, ContextSet filter) {
-        nodesLock.lock();
-        try {
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : nodes.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    ret.addAll(e.getValue());
-                }
-            }
-        } finally {
-            nodesLock.unlock();
-        }
-
-        return ret;
+        return contextIndex.get().filter(ret, filter, false, true);
     }
 
     public List<Node> filterTransientNodes(ContextSet filter) {
@@ -444,18 +500,7 @@ public abstract class PermissionHolder {
     }
 
     public <C extends Collection<Node>> C filterTransientNodes(C ret, ContextSet filter) {
-        transientNodesLock.lock();
-        try {
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : transientNodes.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    ret.addAll(e.getValue());
-                }
-            }
-        } finally {
-            transientNodesLock.unlock();
-        }
-
-        return ret;
+        return contextIndex.get().filter(ret, filter, true, false);
     }
 
     public List<Node> filterNodes(ContextSet filter) {
@@ -463,29 +508,7 @@ public abstract class PermissionHolder {
     }
 
     public <C extends Collection<Node>> C filterNodes(C ret, ContextSet filter) {
-        transientNodesLock.lock();
-        try {
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : transientNodes.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    ret.addAll(e.getValue());
-                }
-            }
-        } finally {
-            transientNodesLock.unlock();
-        }
-
-        nodesLock.lock();
-        try {
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : nodes.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    ret.addAll(e.getValue());
-                }
-            }
-        } finally {
-            nodesLock.unlock();
-        }
-
-        return ret;
+        return contextIndex.get().filter(ret, filter, true, true);
     }
 
     public boolean removeIf(Predicate<Node> predicate) {
@@ -539,22 +562,76 @@ public abstract class PermissionHolder {
             accumulator = new ArrayList<>();
         }
 
+        resolveInheritances((Consumer<LocalizedNode>) accumulator::add, excludedGroups, context);
+        return accumulator;
+    }
+
+    /**
+     * Resolves inherited nodes, passing each to the accumulator as it is resolved
+     *
+     * @param accumulator the consumer to pass resolved nodes to
+     * @param excludedGroups a list of groups to exclude
+     * @param context       context to decide if groups should be applied
+     */
+    public void resolveInheritances(Consumer<? super LocalizedNode> accumulator, Set<String> excludedGroups, Contexts context) {
         if (excludedGroups == null) {
             excludedGroups = new HashSet<>();
         }
 
+        List<Group> parents;
         if (this instanceof Group) {
             excludedGroups.add(getObjectName().toLowerCase());
-        }
 
-        // get and add the objects own nodes
-        List<Node> nodes = filterNodes(context.getContexts());
-        for (Node node : nodes) {
-            ImmutableLocalizedNode localizedNode = ImmutableLocalizedNode.of(node, getObjectName());
-            accumulator.add(localizedNode);
+            // groups reuse the nodes resolved in previous calls
+            Group.ResolvedNodes resolved = ((Group) this).getResolvedNodes(context);
+            resolved.getNodes().forEach(accumulator);
+            parents = resolved.getParents(plugin, excludedGroups);
+        } else {
+            // get and add the objects own nodes
+            List<Node> nodes = filterNodes(context.getContexts());
+            for (Node node : nodes) {
+                ImmutableLocalizedNode localizedNode = ImmutableLocalizedNode.of(node, getObjectName());
+                accumulator.accept(localizedNode);
+            }
+            parents = resolveParents(nodes, excludedGroups, context);
         }
 
         // resolve and process the objects parents
+        if (ParallelInheritanceResolver.shouldResolveInParallel(plugin, parents)) {
+            new ParallelInheritanceResolver(context).resolve(parents);
+        }
+        for (Group g : parents) {
+            g.accumulateInheritances(accumulator, excludedGroups, context);
+        }
+    }
+
+    public List<LocalizedNode> resolveInheritances(Contexts context) {
+        return resolveInheritances(new ArrayList<>(), null, context);
+    }
+
+    /**
+     * Gets the groups this holder directly inherits from, in the order they are applied
+     *
+     * @param context the contexts to resolve in
+     * @return the groups
+     */
+    public List<Group> resolveParents(Contexts context) {
+        Set<String> excludedGroups = this instanceof Group ? Collections.singleton(getObjectName().toLowerCase()) : Collections.emptySet();
+        if (context == Contexts.allowAll()) {
+            return resolveParents(getOwnNodes(), excludedGroups, null);
+        }
+        return resolveParents(filterNodes(context.getContexts()), excludedGroups, context);
+    }
+
+    /**
+     * Resolves the parent groups set by the given nodes
+     *
+     * @param nodes the holders nodes
+     * @param excludedGroups the groups to exclude
+     * @param context the contexts to decide if groups should be applied, or null to apply all groups
+     * @return the groups, sorted in the order they should be applied
+     */
+    List<Group> resolveParents(List<Node> nodes, Set<String> excludedGroups, Contexts context) {
         List<Group> resolvedGroups = new ArrayList<>();
         Set<String> processedGroups = new HashSet<>();
 
@@ -564,7 +641,7 @@ public abstract class PermissionHolder {
 
             if (!processedGroups.add(groupName) || excludedGroups.contains(groupName) || !n.getValuePrimitive()) continue;
 
-            if (!((context.isApplyGlobalGroups() || n.isServerSpecific()) && (context.isApplyGlobalWorldGroups() || n.isWorldSpecific()))) {
+            if (context != null && !((context.isApplyGlobalGroups() || n.isServerSpecific()) && (context.isApplyGlobalWorldGroups() || n.isWorldSpecific()))) {
                 continue;
             }
 
@@ -576,16 +653,7 @@ public abstract class PermissionHolder {
 
         // sort the groups according to weight + other factors.
         resolvedGroups.sort(inheritanceComparator);
-
-        for (Group g : resolvedGroups) {
-            g.resolveInheritances(accumulator, excludedGroups, context);
-        }
-
-        return accumulator;
-    }
-
-    public List<LocalizedNode> resolveInheritances(Contexts context) {
-        return resolveInheritances(null, null, context);
+        return resolvedGroups;
     }
 
     public SortedSet<LocalizedNode> resolveInheritancesAlmostEqual(Contexts contexts) {
@@ -615,49 +683,50 @@ public abstract class PermissionHolder {
             accumulator = new ArrayList<>();
         }
 
+        resolveInheritances((Consumer<LocalizedNode>) accumulator::add, excludedGroups);
+        return accumulator;
+    }
+
+    /**
+     * Resolves inherited nodes, passing each to the accumulator as it is resolved
+     *
+     * @param accumulator the consumer to pass resolved nodes to
+     * @param excludedGroups a list of groups to exclude
+     */
+    public void resolveInheritances(Consumer<? super LocalizedNode> accumulator, Set<String> excludedGroups) {
         if (excludedGroups == null) {
             excludedGroups = new HashSet<>();
         }
 
+        List<Group> parents;
         if (this instanceof Group) {
             excludedGroups.add(getObjectName().toLowerCase());
-        }
 
-        // get and add the objects own nodes
-        List<Node> nodes = getOwnNodes();
-        for (Node node : nodes) {
-            ImmutableLocalizedNode localizedNode = ImmutableLocalizedNode.of(node, getObjectName());
-            accumulator.add(localizedNode);
+            // groups reuse the nodes resolved in previous calls
+            Group.ResolvedNodes resolved = ((Group) this).getResolvedNodes(null);
+            resolved.getNodes().forEach(accumulator);
+            parents = resolved.getParents(plugin, excludedGroups);
+        } else {
+            // get and add the objects own nodes
+            List<Node> nodes = getOwnNodes();
+            for (Node node : nodes) {
+                ImmutableLocalizedNode localizedNode = ImmutableLocalizedNode.of(node, getObjectName());
+                accumulator.accept(localizedNode);
+            }
+            parents = resolveParents(nodes, excludedGroups, null);
         }
 
         // resolve and process the objects parents
-        List<Group> resolvedGroups = new ArrayList<>();
-        Set<String> processedGroups = new HashSet<>();
-
-        for (Node n : nodes) {
-            if (!n.isGroupNode()) continue;
-            String groupName = n.getGroupName();
-
-            if (!processedGroups.add(groupName) || excludedGroups.contains(groupName) || !n.getValuePrimitive()) continue;
-
-            Group g = plugin.getGroupManager().getIfLoaded(groupName);
-            if (g != null) {
-                resolvedGroups.add(g);
-            }
+        if (ParallelInheritanceResolver.shouldResolveInParallel(plugin, parents)) {
+            new ParallelInheritanceResolver(null).resolve(parents);
         }
-
-        // sort the groups according to weight + other factors.
-        resolvedGroups.sort(inheritanceComparator);
-
-        for (Group g : resolvedGroups) {
-            g.resolveInheritances(accumulator, excludedGroups);
+        for (Group g : parents) {
+            g.accumulateInheritances(accumulator, excludedGroups, null);
         }
-
-        return accumulator;
     }
 
     public List<LocalizedNode> resolveInheritances() {
-        return resolveInheritances(null, null);
+        return resolveInheritances(new ArrayList<>(), null);
     }
 
     public SortedSet<LocalizedNode> resolveInheritancesAlmostEqual() {
@@ -702,61 +771,85 @@ public abstract class PermissionHolder {
     }
 
     public Map<String, Boolean> exportNodesAndShorthand(Contexts context, boolean lowerCase) {
-        List<LocalizedNode> entries;
+        return exportNodesAndShorthand(context, lowerCase, null);
+    }
+
+    /**
+     * Exports the holders resolved permissions, including those set by shorthand nodes
+     *
+     * @param context the contexts to resolve in
+     * @param lowerCase if the permissions should be converted to lowercase
+     * @param resolvedGroups the set to add the names of the resolved groups to, in the order
+     *                       they were applied. may be null.
+     * @return the permissions
+     */
+    public Map<String, Boolean> exportNodesAndShorthand(Contexts context, boolean lowerCase, Set<String> resolvedGroups) {
+        PermissionExporter exporter = new PermissionExporter(context, lowerCase, false, isApplyingShorthand());
         if (context.isApplyGroups()) {
-            entries = resolveInheritances(new LinkedList<>(), null, context);
+            // the groups are excluded as they're resolved, so they're collected in a new set
+            // rather than one which may already contain groups
+            Set<String> excludedGroups = resolvedGroups == null ? null : new LinkedHashSet<>();
+            resolveInheritances(exporter::accept, excludedGroups, context);
+            if (resolvedGroups != null) {
+                resolvedGroups.addAll(excludedGroups);
+            }
         } else {
-            entries = new LinkedList<>();
             for (Node n : filterNodes(context.getContexts())) {
-                ImmutableLocalizedNode localizedNode = ImmutableLocalizedNode.of(n, getObjectName());
-                entries.add(localizedNode);
+                exporter.accept(n);
             }
         }
+        return exporter.export();
+    }
 
-        if (!context.isIncludeGlobal()) {
-            entries.removeIf(n -> !n.isGroupNode() && !n.isServerSpecific());
-        }
-        if (!context.isApplyGlobalWorldGroups()) {
-            entries.removeIf(n -> !n.isGroupNode() && !n.isWorldSpecific());
+    /**
+     * Exports the holders own permissions, including those set by shorthand nodes, without
+     * resolving any inheritance.
+     *
+     * @param context the contexts to resolve in
+     * @param lowerCase if the permissions should be converted to lowercase
+     * @return the permissions
+     */
+    public Map<String, Boolean> exportOwnNodesAndShorthand(Contexts context, boolean lowerCase) {
+        PermissionExporter exporter;
+        List<Node> entries;
+        if (context == Contexts.allowAll()) {
+            exporter = new PermissionExporter(null, lowerCase, lowerCase, isApplyingShorthand());
+            entries = getOwnNodes();
+        } else {
+            exporter = new PermissionExporter(context, lowerCase, false, isApplyingShorthand());
+            entries = filterNodes(context.getContexts());
         }
 
-        Map<String, Boolean> perms = new HashMap<>();
-        boolean applyShorthand = plugin.getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND);
-        for (Node node : entries) {
-            String perm = lowerCase ? node.getPermission().toLowerCase() : node.getPermission();
-
-            if (perms.putIfAbsent(perm, node.getValuePrimitive()) == null) {
-                if (applyShorthand) {
-                    List<String> sh = node.resolveShorthand();
-                    if (!sh.isEmpty()) {
-                        sh.stream().map(s -> lowerCase ? s.toLowerCase() : s).forEach(s -> perms.putIfAbsent(s, node.getValuePrimitive()));
-                    }
-                }
-            }
+        for (Node n : entries) {
+            exporter.accept(n);
         }
-
-        return ImmutableMap.copyOf(perms);
+        return exporter.export();
     }
 
     public Map<String, Boolean> exportNodesAndShorthand(boolean lowerCase) {
-        List<LocalizedNode> entries = resolveInheritances();
-
-        Map<String, Boolean> perms = new HashMap<>();
-        boolean applyShorthand = plugin.getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND);
-        for (Node node : entries) {
-            String perm = lowerCase ? node.getPermission().toLowerCase().intern() : node.getPermission();
-
-            if (perms.putIfAbsent(perm, node.getValuePrimitive()) == null && applyShorthand) {
-                List<String> shorthand = node.resolveShorthand();
-                if (!shorthand.isEmpty()) {
-                    for (String s : shorthand) {
-                        perms.putIfAbsent((lowerCase ? s.toLowerCase() : s).intern(), node.getValuePrimitive());
-                    }
-                }
-            }
+        return exportNodesAndShorthand(lowerCase, null);
+    }
+
+    /**
+     * Exports all of the holders resolved permissions, including those set by shorthand nodes
+     *
+     * @param lowerCase if the permissions should be converted to lowercase
+     * @param resolvedGroups the set to add the names of the resolved groups to, in the order
+     *                       they were applied. may be null.
+     * @return the permissions
+     */
+    public Map<String, Boolean> exportNodesAndShorthand(boolean lowerCase, Set<String> resolvedGroups) {
+        PermissionExporter exporter = new PermissionExporter(null, lowerCase, lowerCase, isApplyingShorthand());
+        Set<String> excludedGroups = resolvedGroups == null ? null : new LinkedHashSet<>();
+        resolveInheritances(exporter::accept, excludedGroups);
+        if (resolvedGroups != null) {
+            resolvedGroups.addAll(excludedGroups);
         }
+        return exporter.export();
+    }
 
-        return ImmutableMap.copyOf(perms);
+    private boolean isApplyingShorthand() {
+        return plugin.getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND);
     }
 
     public MetaAccumulator accumulateMeta(MetaAccumulator accumulator, Set<String> excludedGroups, Contexts context) {
@@ -1059,7 +1152,7 @@ public abstract class PermissionHolder {
         } finally {
             nodesLock.unlock();
         }
-        invalidateCache();
+        invalidateCache(node);
 
         ImmutableCollection<Node> after = getEnduringNodes().values();
 
@@ -1098,7 +1191,7 @@ public abstract class PermissionHolder {
                         nodesLock.unlock();
                     }
 
-                    invalidateCache();
+                    invalidateCache(newNode);
                     ImmutableCollection<Node> after = getEnduringNodes().values();
                     plugin.getApiProvider().getEventFactory().handleNodeAdd(newNode, this, before, after);
                     return Maps.immutableEntry(DataMutateResult.SUCCESS, newNode);
@@ -1125,7 +1218,7 @@ public abstract class PermissionHolder {
                             nodesLock.unlock();
                         }
 
-                        invalidateCache();
+                        invalidateCache(node);
                         ImmutableCollection<Node> after = getEnduringNodes().values();
                         plugin.getApiProvider().getEventFactory().handleNodeAdd(node, this, before, after);
                         return Maps.immutableEntry(DataMutateResult.SUCCESS, node);
@@ -1159,7 +1252,7 @@ public abstract class PermissionHolder {
             transientNodesLock.unlock();
         }
 
-        invalidateCache();
+        invalidateCache(node);
 
         ImmutableCollection<Node> after = getTransientNodes().values();
 
@@ -1186,7 +1279,7 @@ public abstract class PermissionHolder {
             nodesLock.unlock();
         }
 
-        invalidateCache();
+        invalidateCache(node);
 
         ImmutableCollection<Node> after = getEnduringNodes().values();
         plugin.getApiProvider().getEventFactory().handleNodeRemove(node, this, before, after);
@@ -1208,7 +1301,7 @@ public abstract class PermissionHolder {
             nodesLock.unlock();
         }
 
-        invalidateCache();
+        invalidateCache(node);
 
         ImmutableCollection<Node> after = getEnduringNodes().values();
 
@@ -1239,7 +1332,7 @@ public abstract class PermissionHolder {
             transientNodesLock.unlock();
         }
 
-        invalidateCache();
+        invalidateCache(node);
 
         ImmutableCollection<Node> after = getTransientNodes().values();
         plugin.getApiProvider().getEventFactory().handleNodeRemove(node, this, before, after);
@@ -33,6 +33,7 @@ import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.common.api.delegates.model.ApiUser;
 import me.lucko.luckperms.common.buffers.BufferedRequest;
 import me.lucko.luckperms.common.caching.UserCachedData;
+import me.lucko.luckperms.common.caching.handlers.NodeChangeTracker;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.primarygroup.PrimaryGroupHolder;
@@ -219,6 +220,20 @@ public class User extends PermissionHolder implements Identifiable<UserIdentifie
 
         @Override
         protected Void perform() {
+            NodeChangeTracker.Changes changes = user.getChangeTracker().drain();
+            if (user.getPlugin().getConfiguration().get(ConfigKeys.INCREMENTAL_PERMISSION_UPDATES)) {
+                // a refresh requested without any recorded changes, e.g. by the api, reloads everything
+                if (changes.isEmpty()) {
+                    return user.reloadCachedData().join();
+                }
+
+                return user.getCachedData().applyChanges(user, changes).thenAccept(affected -> {
+                    if (affected) {
+                        user.getPlugin().getApiProvider().getEventFactory().handleUserDataRecalculate(user, user.getCachedData());
+                    }
+                }).join();
+            }
+
             return user.reloadCachedData().join();
         }
     }
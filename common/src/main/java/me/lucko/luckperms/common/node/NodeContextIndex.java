@@ -0,0 +1,220 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.node;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.api.context.ContextSet;
+import me.lucko.luckperms.api.context.ImmutableContextSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable index of a holders nodes, by the contexts they apply in.
+ *
+ * <p>Nodes are kept in buckets by their full contexts, in the same order as the holders
+ * node maps. Each context pair maps to the buckets which require it, so filtering only
+ * visits the buckets sharing a context pair with the filter, and the global buckets.</p>
+ */
+public final class NodeContextIndex {
+    private static final int[] EMPTY = new int[0];
+
+    public static NodeContextIndex of(Multimap<ImmutableContextSet, Node> transientNodes, Multimap<ImmutableContextSet, Node> enduringNodes) {
+        return new NodeContextIndex(transientNodes, enduringNodes);
+    }
+
+    /**
+     * The nodes in each bucket, transient buckets first
+     */
+    private final List<List<Node>> buckets = new ArrayList<>();
+
+    /**
+     * The number of context pairs required by each bucket
+     */
+    private final int[] sizes;
+
+    /**
+     * Buckets [0, transientBuckets) hold transient nodes, the rest hold enduring nodes
+     */
+    private final int transientBuckets;
+
+    /**
+     * The buckets which don't require any context, in ascending order
+     */
+    private final int[] global;
+
+    /**
+     * Context key --> context value --> the buckets which require the pair, in ascending order
+     */
+    private final Map<String, Map<String, int[]>> index = new HashMap<>();
+
+    private NodeContextIndex(Multimap<ImmutableContextSet, Node> transientNodes, Multimap<ImmutableContextSet, Node> enduringNodes) {
+        Map<ImmutableContextSet, Collection<Node>> transientMap = transientNodes.asMap();
+        Map<ImmutableContextSet, Collection<Node>> enduringMap = enduringNodes.asMap();
+
+        this.sizes = new int[transientMap.size() + enduringMap.size()];
+        this.transientBuckets = transientMap.size();
+
+        List<Integer> global = new ArrayList<>();
+        Map<String, Map<String, List<Integer>>> index = new HashMap<>();
+
+        for (Map<ImmutableContextSet, Collection<Node>> map : Arrays.asList(transientMap, enduringMap)) {
+            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : map.entrySet()) {
+                int id = this.buckets.size();
+                this.buckets.add(ImmutableList.copyOf(e.getValue()));
+
+                ImmutableContextSet contexts = e.getKey();
+                this.sizes[id] = contexts.size();
+                if (contexts.isEmpty()) {
+                    global.add(id);
+                    continue;
+                }
+
+                for (Map.Entry<String, String> pair : contexts.toSet()) {
+                    index.computeIfAbsent(pair.getKey(), k -> new HashMap<>())
+                            .computeIfAbsent(pair.getValue(), v -> new ArrayList<>())
+                            .add(id);
+                }
+            }
+        }
+
+        this.global = toArray(global);
+        for (Map.Entry<String, Map<String, List<Integer>>> key : index.entrySet()) {
+            Map<String, int[]> values = new HashMap<>();
+            for (Map.Entry<String, List<Integer>> value : key.getValue().entrySet()) {
+                values.put(value.getKey(), toArray(value.getValue()));
+            }
+            this.index.put(key.getKey(), values);
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] ret = new int[list.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = list.get(i);
+        }
+        return ret;
+    }
+
+    /**
+     * Adds the nodes whose contexts are satisfied by the filter to a collection, in the
+     * order they are held by the holder.
+     *
+     * @param ret the collection to add to
+     * @param filter the contexts to filter by
+     * @param includeTransient if transient nodes should be included
+     * @param includeEnduring if enduring nodes should be included
+     * @param <C> the collection type
+     * @return the collection
+     */
+    public <C extends Collection<Node>> C filter(C ret, ContextSet filter, boolean includeTransient, boolean includeEnduring) {
+        int from = includeTransient ? 0 : transientBuckets;
+        int to = includeEnduring ? buckets.size() : transientBuckets;
+
+        int[] matches = match(filter);
+
+        // merge the matched buckets with the global ones, keeping the original order
+        int i = 0;
+        int j = 0;
+        while (i < global.length || j < matches.length) {
+            int id;
+            if (j >= matches.length || (i < global.length && global[i] < matches[j])) {
+                id = global[i++];
+            } else {
+                id = matches[j++];
+            }
+
+            if (id >= from && id < to) {
+                ret.addAll(buckets.get(id));
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Finds the non-global buckets whose contexts are all present in the filter.
+     *
+     * @param filter the filter
+     * @return the bucket ids, in ascending order
+     */
+    private int[] match(ContextSet filter) {
+        if (filter.isEmpty() || index.isEmpty()) {
+            return EMPTY;
+        }
+
+        // collect the buckets requiring each of the filters pairs
+        int[] candidates = EMPTY;
+        int count = 0;
+        for (Map.Entry<String, String> pair : filter.toSet()) {
+            Map<String, int[]> values = index.get(pair.getKey());
+            if (values == null) {
+                continue;
+            }
+
+            int[] ids = values.get(pair.getValue());
+            if (ids == null) {
+                continue;
+            }
+
+            if (count + ids.length > candidates.length) {
+                candidates = Arrays.copyOf(candidates, Math.max(candidates.length * 2, count + ids.length));
+            }
+            System.arraycopy(ids, 0, candidates, count, ids.length);
+            count += ids.length;
+        }
+
+        if (count == 0) {
+            return EMPTY;
+        }
+
+        // a bucket matches if every pair it requires was found
+        Arrays.sort(candidates, 0, count);
+        int[] matches = new int[count];
+        int matched = 0;
+        for (int start = 0; start < count; ) {
+            int id = candidates[start];
+            int end = start + 1;
+            while (end < count && candidates[end] == id) {
+                end++;
+            }
+
+            if (end - start == sizes[id]) {
+                matches[matched++] = id;
+            }
+            start = end;
+        }
+
+        return Arrays.copyOf(matches, matched);
+    }
+}
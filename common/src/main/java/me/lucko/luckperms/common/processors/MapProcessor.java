@@ -28,9 +28,11 @@ package me.lucko.luckperms.common.processors;
 import me.lucko.luckperms.api.Tristate;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 public class MapProcessor implements PermissionProcessor {
-    private Map<String, Boolean> map = null;
+    private volatile Map<String, Boolean> map = null;
 
     @Override
     public Tristate hasPermission(String permission) {
@@ -40,8 +42,16 @@ public class MapProcessor implements PermissionProcessor {
 
     @Override
     public void updateBacking(Map<String, Boolean> map) {
-        if (this.map == null) {
-            this.map = map;
-        }
+        this.map = map;
+    }
+
+    @Override
+    public PermissionProcessor copy() {
+        return new MapProcessor();
+    }
+
+    @Override
+    public Predicate<String> getAffectedPermissions(Set<String> changedKeys) {
+        return changedKeys::contains;
     }
 }
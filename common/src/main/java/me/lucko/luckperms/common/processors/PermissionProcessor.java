@@ -28,6 +28,8 @@ package me.lucko.luckperms.common.processors;
 import me.lucko.luckperms.api.Tristate;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * A processor within a {@link me.lucko.luckperms.common.calculators.PermissionCalculator}.
@@ -45,12 +47,54 @@ public interface PermissionProcessor {
     /**
      * Called each time the permission calculators backing is updated.
      *
-     * <p>Note that the same map instance is passed to this method on each update,
-     * so, if no processing is needed on the backing map, this can be cached on
-     * the first invocation.</p>
+     * <p>Each update passes a new, immutable map instance. Updates are only ever
+     * applied to a {@link #copy()} of a processor which is not yet in use.</p>
      *
      * @param map the map
      */
     void updateBacking(Map<String, Boolean> map);
 
+    /**
+     * Called when only some of the entries in the calculators backing have
+     * been added, removed or changed.
+     *
+     * <p>Processors which only depend on certain kinds of entry can use this
+     * to avoid rebuilding their state. By default, the call is passed
+     * to {@link #updateBacking(Map)}.</p>
+     *
+     * @param map the map
+     * @param changedKeys the keys which have changed
+     */
+    default void updateBacking(Map<String, Boolean> map, Set<String> changedKeys) {
+        updateBacking(map);
+    }
+
+    /**
+     * Creates a copy of this processor, which can be updated without affecting
+     * this instance.
+     *
+     * <p>Any state derived from the previous backing should be carried over, so
+     * that partial updates can reuse it. Processors which hold no state derived
+     * from the backing can return themselves.</p>
+     *
+     * @return a copy of this processor
+     */
+    PermissionProcessor copy();
+
+    /**
+     * Gets a predicate matching the permissions for which this processor may
+     * return a different result, after the given keys in the backing have been
+     * added, removed or changed.
+     *
+     * <p>Used to keep cached lookups which cannot have been affected by an update.
+     * Returning null indicates that the result for any permission may have
+     * changed. By default, null is returned.</p>
+     *
+     * @param changedKeys the keys which have changed
+     * @return a predicate matching the affected permissions, or null if all permissions may be affected
+     */
+    default Predicate<String> getAffectedPermissions(Set<String> changedKeys) {
+        return null;
+    }
+
 }
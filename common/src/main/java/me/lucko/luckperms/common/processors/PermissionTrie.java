@@ -0,0 +1,204 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.processors;
+
+import me.lucko.luckperms.api.Tristate;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * An immutable trie of permission strings, split into segments on the '.' character.
+ *
+ * <p>Each key in the trie maps to a value. Lookups walk the segments of the queried
+ * permission directly, without allocating substrings, and return the value of the
+ * longest key which is a proper prefix (in whole segments) of the permission.</p>
+ */
+public final class PermissionTrie {
+
+    /**
+     * Compiles a trie from the given map.
+     *
+     * <p>Each entry in the map is passed to the key function, which returns the key to
+     * insert into the trie, or null if the entry should be skipped.</p>
+     *
+     * @param map the map to compile
+     * @param keyFunction the function used to determine the key for each entry
+     * @return a new trie
+     */
+    public static PermissionTrie compile(Map<String, Boolean> map, Function<String, String> keyFunction) {
+        Node root = new Node();
+        for (Map.Entry<String, Boolean> e : map.entrySet()) {
+            String key = keyFunction.apply(e.getKey());
+            if (key == null || key.isEmpty()) {
+                continue;
+            }
+
+            Node node = root;
+            int start = 0;
+            while (true) {
+                int end = key.indexOf('.', start);
+                if (end == -1) {
+                    end = key.length();
+                }
+
+                node = node.getOrCreateChild(key, start, end - start);
+
+                if (end == key.length()) {
+                    break;
+                }
+                start = end + 1;
+            }
+
+            node.value = Tristate.fromBoolean(e.getValue());
+        }
+        return new PermissionTrie(root);
+    }
+
+    private final Node root;
+
+    private PermissionTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Gets the value of the longest key in the trie which is a proper prefix of
+     * the given permission, on a segment boundary.
+     *
+     * <p>For the permission "a.b.c", the keys "a.b" and "a" are tested, in that order.</p>
+     *
+     * @param permission the permission
+     * @return the value of the longest matching prefix, or {@link Tristate#UNDEFINED}
+     */
+    public Tristate getLongestPrefixValue(String permission) {
+        Tristate result = Tristate.UNDEFINED;
+
+        Node node = root;
+        int start = 0;
+        while (true) {
+            int end = permission.indexOf('.', start);
+            if (end == -1) {
+                // the last segment is never a proper prefix
+                return result;
+            }
+
+            node = node.getChild(permission, start, end - start);
+            if (node == null) {
+                return result;
+            }
+
+            if (node.value != Tristate.UNDEFINED) {
+                result = node.value;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * A node in the trie. Children are held in an open-addressed hash table, keyed by the
+     * segment string, so they can be found using a region of the queried permission.
+     */
+    private static final class Node {
+        private static final String[] EMPTY_KEYS = new String[0];
+        private static final Node[] EMPTY_CHILDREN = new Node[0];
+
+        private String[] keys = EMPTY_KEYS;
+        private Node[] children = EMPTY_CHILDREN;
+        private int size = 0;
+        private Tristate value = Tristate.UNDEFINED;
+
+        private Node getChild(String s, int offset, int length) {
+            String[] keys = this.keys;
+            if (keys.length == 0) {
+                return null;
+            }
+
+            int mask = keys.length - 1;
+            int i = hash(s, offset, length) & mask;
+            while (true) {
+                String key = keys[i];
+                if (key == null) {
+                    return null;
+                }
+                if (key.length() == length && key.regionMatches(0, s, offset, length)) {
+                    return children[i];
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        private Node getOrCreateChild(String s, int offset, int length) {
+            Node existing = getChild(s, offset, length);
+            if (existing != null) {
+                return existing;
+            }
+
+            // keep the load factor at or below 0.5
+            if ((size + 1) * 2 > keys.length) {
+                resize(Math.max(4, keys.length * 2));
+            }
+
+            Node child = new Node();
+            insert(s.substring(offset, offset + length), child);
+            size++;
+            return child;
+        }
+
+        private void resize(int capacity) {
+            String[] oldKeys = this.keys;
+            Node[] oldChildren = this.children;
+
+            this.keys = new String[capacity];
+            this.children = new Node[capacity];
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldChildren[i]);
+                }
+            }
+        }
+
+        private void insert(String key, Node child) {
+            int mask = keys.length - 1;
+            int i = hash(key, 0, key.length()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            children[i] = child;
+        }
+
+        private static int hash(String s, int offset, int length) {
+            int h = 0;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                h = 31 * h + s.charAt(i);
+            }
+            // spread the high bits downwards, as the table index uses the low bits
+            return h ^ (h >>> 16);
+        }
+    }
+
+}
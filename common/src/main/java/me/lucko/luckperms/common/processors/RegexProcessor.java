@@ -25,21 +25,45 @@
 
 package me.lucko.luckperms.common.processors;
 
+import com.google.common.collect.ImmutableList;
+
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.common.utils.PatternCache;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
+/**
+ * Permission processor which resolves regex permissions, marked with "r=" at the start of the node.
+ *
+ * <p>When the backing is updated, runs of patterns are combined into a single alternation, with each
+ * pattern wrapped in its own capturing group. A lookup then only needs to run one matcher per run,
+ * and the group which participated in the match identifies the first pattern (in backing order)
+ * which matched the permission.</p>
+ *
+ * <p>Patterns which cannot safely be combined (those using back references, named groups, quoting
+ * or comments mode) are matched individually, in their original position in the order.</p>
+ */
 public class RegexProcessor implements PermissionProcessor {
-    private final Map<Pattern, Boolean> regexPermissions = new ConcurrentHashMap<>();
+
+    // detects constructs which depend on the group numbering/naming of the pattern they are used in,
+    // or which could consume the surrounding alternation syntax
+    private static final Pattern UNCOMBINABLE = Pattern.compile("\\\\[0-9]|\\\\k<|\\\\Q|\\(\\?<[a-zA-Z]|\\(\\?[a-zA-Z-]*x");
+
+    private volatile List<RegexMatcher> matchers = ImmutableList.of();
 
     @Override
     public Tristate hasPermission(String permission) {
-        for (Map.Entry<Pattern, Boolean> e : regexPermissions.entrySet()) {
-            if (e.getKey().matcher(permission).matches()) {
-                return Tristate.fromBoolean(e.getValue());
+        for (RegexMatcher matcher : matchers) {
+            Tristate result = matcher.match(permission);
+            if (result != Tristate.UNDEFINED) {
+                return result;
             }
         }
 
@@ -48,7 +72,10 @@ public class RegexProcessor implements PermissionProcessor {
 
     @Override
     public void updateBacking(Map<String, Boolean> map) {
-        regexPermissions.clear();
+        ImmutableList.Builder<RegexMatcher> matchers = ImmutableList.builder();
+        List<Pattern> run = new ArrayList<>();
+        List<Boolean> runValues = new ArrayList<>();
+
         for (Map.Entry<String, Boolean> e : map.entrySet()) {
             if (!e.getKey().startsWith("r=") && !e.getKey().startsWith("R=")) {
                 continue;
@@ -61,7 +88,159 @@ public class RegexProcessor implements PermissionProcessor {
                 continue;
             }
 
-            regexPermissions.put(p, e.getValue());
+            if (UNCOMBINABLE.matcher(pattern).find()) {
+                flushRun(matchers, run, runValues);
+                matchers.add(new SingleMatcher(p, Tristate.fromBoolean(e.getValue())));
+            } else {
+                run.add(p);
+                runValues.add(e.getValue());
+            }
+        }
+
+        flushRun(matchers, run, runValues);
+        this.matchers = matchers.build();
+    }
+
+    @Override
+    public void updateBacking(Map<String, Boolean> map, Set<String> changedKeys) {
+        for (String key : changedKeys) {
+            if (key.startsWith("r=") || key.startsWith("R=")) {
+                updateBacking(map);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public PermissionProcessor copy() {
+        RegexProcessor copy = new RegexProcessor();
+        copy.matchers = matchers;
+        return copy;
+    }
+
+    @Override
+    public Predicate<String> getAffectedPermissions(Set<String> changedKeys) {
+        for (String key : changedKeys) {
+            if (key.startsWith("r=") || key.startsWith("R=")) {
+                return null;
+            }
+        }
+        return permission -> false;
+    }
+
+    private static void flushRun(ImmutableList.Builder<RegexMatcher> matchers, List<Pattern> run, List<Boolean> runValues) {
+        if (run.isEmpty()) {
+            return;
+        }
+
+        if (run.size() == 1) {
+            matchers.add(new SingleMatcher(run.get(0), Tristate.fromBoolean(runValues.get(0))));
+        } else {
+            matchers.add(CombinedMatcher.combine(run, runValues));
+        }
+
+        run.clear();
+        runValues.clear();
+    }
+
+    private interface RegexMatcher {
+        Tristate match(String permission);
+    }
+
+    private static final class SingleMatcher implements RegexMatcher {
+        private final Pattern pattern;
+        private final Tristate value;
+
+        private SingleMatcher(Pattern pattern, Tristate value) {
+            this.pattern = pattern;
+            this.value = value;
+        }
+
+        @Override
+        public Tristate match(String permission) {
+            return pattern.matcher(permission).matches() ? value : Tristate.UNDEFINED;
+        }
+    }
+
+    private static final class CombinedMatcher implements RegexMatcher {
+
+        private static RegexMatcher combine(List<Pattern> patterns, List<Boolean> values) {
+            StringBuilder combined = new StringBuilder();
+            int[] groups = new int[patterns.size()];
+            Tristate[] results = new Tristate[patterns.size()];
+
+            // the group number of the next wrapping group
+            int group = 1;
+            for (int i = 0; i < patterns.size(); i++) {
+                Pattern pattern = patterns.get(i);
+                if (i != 0) {
+                    combined.append('|');
+                }
+                combined.append('(').append(pattern.pattern()).append(')');
+
+                groups[i] = group;
+                results[i] = Tristate.fromBoolean(values.get(i));
+
+                // skip over the wrapping group and any groups within the pattern itself
+                group += 1 + pattern.matcher("").groupCount();
+            }
+
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(combined.toString());
+            } catch (PatternSyntaxException e) {
+                return new FallbackMatcher(patterns, results);
+            }
+
+            return new CombinedMatcher(pattern, groups, results);
+        }
+
+        private final Pattern pattern;
+        private final int[] groups;
+        private final Tristate[] results;
+
+        private CombinedMatcher(Pattern pattern, int[] groups, Tristate[] results) {
+            this.pattern = pattern;
+            this.groups = groups;
+            this.results = results;
+        }
+
+        @Override
+        public Tristate match(String permission) {
+            Matcher matcher = pattern.matcher(permission);
+            if (!matcher.matches()) {
+                return Tristate.UNDEFINED;
+            }
+
+            // alternatives are attempted in order, so the only participating
+            // wrapper group belongs to the first pattern which matched.
+            for (int i = 0; i < groups.length; i++) {
+                if (matcher.start(groups[i]) != -1) {
+                    return results[i];
+                }
+            }
+
+            return Tristate.UNDEFINED;
+        }
+    }
+
+    private static final class FallbackMatcher implements RegexMatcher {
+        private final Pattern[] patterns;
+        private final Tristate[] results;
+
+        private FallbackMatcher(List<Pattern> patterns, Tristate[] results) {
+            this.patterns = patterns.toArray(new Pattern[patterns.size()]);
+            this.results = results;
+        }
+
+        @Override
+        public Tristate match(String permission) {
+            for (int i = 0; i < patterns.length; i++) {
+                if (patterns[i].matcher(permission).matches()) {
+                    return results[i];
+                }
+            }
+            return Tristate.UNDEFINED;
         }
     }
 }
@@ -25,49 +25,83 @@
 
 package me.lucko.luckperms.common.processors;
 
+import com.google.common.collect.Maps;
+
 import me.lucko.luckperms.api.Tristate;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
+/**
+ * Permission processor which resolves wildcard nodes, e.g. "some.node.*".
+ *
+ * <p>The wildcard nodes in the backing map are compiled into a {@link PermissionTrie}
+ * each time the backing is updated, so lookups can be resolved in a single walk
+ * over the permission, without building each candidate wildcard string.</p>
+ */
 public class WildcardProcessor implements PermissionProcessor {
-    private Map<String, Boolean> map = null;
+    private static final String WILDCARD_SUFFIX = ".*";
+    private static final String ROOT_WILDCARD = "*";
+    private static final String ROOT_WILDCARD_WITH_QUOTES = "'*'";
+
+    private volatile PermissionTrie trie = null;
+    private volatile Tristate rootWildcard = Tristate.UNDEFINED;
 
     @Override
     public Tristate hasPermission(String permission) {
-        String node = permission;
+        Tristate result = trie.getLongestPrefixValue(permission);
+        if (result != Tristate.UNDEFINED) {
+            return result;
+        }
 
-        while (true) {
-            int endIndex = node.lastIndexOf('.');
-            if (endIndex == -1) {
-                break;
-            }
+        return rootWildcard;
+    }
 
-            node = node.substring(0, endIndex);
-            if (!node.isEmpty()) {
-                Boolean b = map.get(node + ".*");
-                if (b != null) {
-                    return Tristate.fromBoolean(b);
-                }
-            }
-        }
+    @Override
+    public void updateBacking(Map<String, Boolean> map) {
+        trie = PermissionTrie.compile(map, WildcardProcessor::stripWildcardSuffix);
 
-        Boolean b = map.get("'*'");
-        if (b != null) {
-            return Tristate.fromBoolean(b);
+        Boolean b = map.get(ROOT_WILDCARD_WITH_QUOTES);
+        if (b == null) {
+            b = map.get(ROOT_WILDCARD);
         }
+        rootWildcard = b == null ? Tristate.UNDEFINED : Tristate.fromBoolean(b);
+    }
 
-        b = map.get("*");
-        if (b != null) {
-            return Tristate.fromBoolean(b);
+    @Override
+    public void updateBacking(Map<String, Boolean> map, Set<String> changedKeys) {
+        for (String key : changedKeys) {
+            if (key.endsWith(WILDCARD_SUFFIX) || key.equals(ROOT_WILDCARD) || key.equals(ROOT_WILDCARD_WITH_QUOTES)) {
+                updateBacking(map);
+                return;
+            }
         }
+    }
 
-        return Tristate.UNDEFINED;
+    @Override
+    public PermissionProcessor copy() {
+        WildcardProcessor copy = new WildcardProcessor();
+        copy.trie = trie;
+        copy.rootWildcard = rootWildcard;
+        return copy;
     }
 
     @Override
-    public void updateBacking(Map<String, Boolean> map) {
-        if (this.map == null) {
-            this.map = map;
+    public Predicate<String> getAffectedPermissions(Set<String> changedKeys) {
+        if (changedKeys.contains(ROOT_WILDCARD) || changedKeys.contains(ROOT_WILDCARD_WITH_QUOTES)) {
+            return null;
+        }
+
+        // a permission is only affected by the changed wildcards which are a prefix of it
+        PermissionTrie changed = PermissionTrie.compile(Maps.asMap(changedKeys, k -> Boolean.TRUE), WildcardProcessor::stripWildcardSuffix);
+        return permission -> changed.getLongestPrefixValue(permission) != Tristate.UNDEFINED;
+    }
+
+    private static String stripWildcardSuffix(String key) {
+        if (!key.endsWith(WILDCARD_SUFFIX)) {
+            return null;
         }
+        return key.substring(0, key.length() - WILDCARD_SUFFIX.length());
     }
 }
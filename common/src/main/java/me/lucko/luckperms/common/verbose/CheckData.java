@@ -54,9 +54,12 @@ public class CheckData {
     private final ImmutableContextSet checkContext;
 
     /**
-     * The stack trace when the check took place
+     * The stack trace when the check took place.
+     *
+     * <p>Held as a throwable, as creating the stack trace elements is expensive, and
+     * only needs to be done for checks which are actually displayed.</p>
      */
-    private final StackTraceElement[] checkTrace;
+    private final Throwable checkTrace;
 
     /**
      * The permission which was checked for
@@ -68,4 +71,18 @@ public class CheckData {
      */
     private final Tristate result;
 
+    /**
+     * The random value used to decide if the check is sampled by a listener
+     */
+    private final int sample;
+
+    /**
+     * Gets the stack trace when the check took place
+     *
+     * @return the stack trace
+     */
+    public StackTraceElement[] getCheckTrace() {
+        return checkTrace.getStackTrace();
+    }
+
 }
@@ -0,0 +1,176 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.verbose;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, lock-free ring buffer of {@link CheckData}, with many producers and a
+ * single consumer.
+ *
+ * <p>The slots are allocated up front. When the buffer is full, new data is dropped
+ * rather than queued, so the memory held by pending checks never exceeds the capacity
+ * of the buffer. Dropped offers are counted.</p>
+ *
+ * <p>Each slot has a sequence number, which records whether the slot is free to be
+ * written for a given position, or holds published data waiting to be read.</p>
+ *
+ * <p>{@link #poll()} must only be called by one thread at a time.</p>
+ */
+public class CheckDataBuffer {
+    private final int capacity;
+    private final int mask;
+
+    private final AtomicReferenceArray<CheckData> slots;
+    private final AtomicLongArray sequences;
+
+    // the next position to be claimed by a producer
+    private final AtomicLong tail = new AtomicLong(0);
+
+    // the next position to be read by the consumer
+    private volatile long head = 0;
+
+    // the number of checks offered, and the number which were dropped because the buffer was full
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // the largest number of checks which were waiting to be read at once
+    private volatile long peakBacklog = 0;
+
+    public CheckDataBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds check data to the buffer, if there is space for it.
+     *
+     * @param data the data to add
+     * @return true if the data was added, false if it was dropped
+     */
+    public boolean offer(CheckData data) {
+        offered.increment();
+
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                // the slot is free for this position - try to claim it
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, data);
+                    // publish the data to the consumer
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // the slot still holds data from the previous lap - the buffer is full
+                dropped.increment();
+                return false;
+            } else {
+                // another producer claimed this position first
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the next check data from the buffer.
+     *
+     * @return the data, or null if there is no data waiting to be read
+     */
+    public CheckData poll() {
+        long position = head;
+        int index = (int) position & mask;
+
+        if (sequences.get(index) != position + 1) {
+            // empty, or the producer for this position hasn't published yet
+            return null;
+        }
+
+        CheckData data = slots.get(index);
+        slots.lazySet(index, null);
+        // release the slot for the next lap
+        sequences.set(index, position + capacity);
+
+        long backlog = tail.get() - position;
+        if (backlog > peakBacklog) {
+            peakBacklog = backlog;
+        }
+
+        head = position + 1;
+        return data;
+    }
+
+    /**
+     * Gets if there is no data waiting to be read.
+     *
+     * @return true if the buffer is empty
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Gets the number of checks waiting to be read.
+     *
+     * @return the backlog size
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getOfferedCount() {
+        return offered.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getPeakBacklog() {
+        return peakBacklog;
+    }
+}
@@ -25,142 +25,262 @@
 
 package me.lucko.luckperms.common.verbose;
 
-import lombok.experimental.UtilityClass;
-
-import me.lucko.luckperms.common.utils.Scripting;
+import me.lucko.luckperms.api.Tristate;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.StringTokenizer;
 
-import javax.script.ScriptEngine;
-
 /**
- * Tests verbose filters
+ * A compiled verbose filter.
+ *
+ * <p>Filters are made up of tokens, combined using the '&amp;' (and), '|' (or) and
+ * '!' (not) operators, and grouped using parentheses. A token matches a check if it
+ * is equal to the name of the check target or the check result, or if it is a prefix
+ * of the checked permission. All comparisons ignore case.</p>
+ *
+ * <p>The filter string is parsed once, into a tree of nodes which can be evaluated
+ * for each check without allocating.</p>
  */
-@UtilityClass
-public class VerboseFilter {
+public final class VerboseFilter {
+
+    private static final VerboseFilter ACCEPT_ALL = new VerboseFilter("", (target, permission, result) -> true);
 
     /**
-     * Evaluates whether the passed check data passes the filter
+     * Compiles a filter
      *
-     * @param data the check data
-     * @param filter the filter
-     * @return if the check data passes the filter
+     * @param filter the filter string
+     * @return the compiled filter
+     * @throws IllegalArgumentException if the filter is not valid
      */
-    public static boolean passesFilter(CheckData data, String filter) {
-        if (filter.equals("")) {
-            return true;
+    public static VerboseFilter compile(String filter) throws IllegalArgumentException {
+        if (filter.trim().isEmpty()) {
+            return ACCEPT_ALL;
         }
+        return new VerboseFilter(filter, new Parser(filter).parse());
+    }
 
-        // get the script engine
-        ScriptEngine engine = Scripting.getScriptEngine();
-        if (engine == null) {
+    /**
+     * Tests whether a filter is valid
+     *
+     * @param filter the filter to test
+     * @return true if the filter is valid
+     */
+    public static boolean isValidFilter(String filter) {
+        try {
+            compile(filter);
+            return true;
+        } catch (IllegalArgumentException e) {
             return false;
         }
+    }
+
+    private final String filter;
+    private final Expression expression;
 
-        // tokenize the filter
-        StringTokenizer tokenizer = new StringTokenizer(filter, " |&()!", true);
+    private VerboseFilter(String filter, Expression expression) {
+        this.filter = filter;
+        this.expression = expression;
+    }
 
-        // build an expression which can be evaluated by the javascript engine
-        StringBuilder expressionBuilder = new StringBuilder();
+    /**
+     * Evaluates whether a check passes the filter
+     *
+     * @param checkTarget the target of the check
+     * @param permission the permission which was checked for
+     * @param result the result of the check
+     * @return if the check passes the filter
+     */
+    public boolean evaluate(String checkTarget, String permission, Tristate result) {
+        return expression.evaluate(checkTarget, permission, result);
+    }
 
-        // read the tokens
-        while (tokenizer.hasMoreTokens()) {
-            String token = tokenizer.nextToken();
+    /**
+     * Evaluates whether the passed check data passes the filter
+     *
+     * @param data the check data
+     * @return if the check data passes the filter
+     */
+    public boolean evaluate(CheckData data) {
+        return evaluate(data.getCheckTarget(), data.getPermission(), data.getResult());
+    }
 
-            // if the token is a delimiter, just append it to the expression
-            if (isDelim(token)) {
-                expressionBuilder.append(token);
+    /**
+     * Gets if this filter accepts all checks
+     *
+     * @return true if the filter is empty
+     */
+    public boolean isEmpty() {
+        return this == ACCEPT_ALL;
+    }
 
-            } else {
+    @Override
+    public String toString() {
+        return filter;
+    }
 
-                // if the token is not a delimiter, it must be a string.
-                // we replace non-delimiters with a boolean depending on if the string matches the check data.
-                boolean value = data.getCheckTarget().equalsIgnoreCase(token) ||
-                        data.getPermission().toLowerCase().startsWith(token.toLowerCase()) ||
-                        data.getResult().name().equalsIgnoreCase(token);
+    @FunctionalInterface
+    private interface Expression {
+        boolean evaluate(String checkTarget, String permission, Tristate result);
+    }
 
-                expressionBuilder.append(value);
-            }
+    private static final class TokenExpression implements Expression {
+        private final String token;
+
+        private TokenExpression(String token) {
+            this.token = token;
         }
 
-        // build the expression
-        String expression = expressionBuilder.toString().replace("&", "&&").replace("|", "||");
+        @Override
+        public boolean evaluate(String checkTarget, String permission, Tristate result) {
+            return checkTarget.equalsIgnoreCase(token) ||
+                    permission.regionMatches(true, 0, token, 0, token.length()) ||
+                    result.name().equalsIgnoreCase(token);
+        }
+    }
 
-        // evaluate the expression using the script engine
-        try {
-            String result = engine.eval(expression).toString();
-            if (!result.equals("true") && !result.equals("false")) {
-                throw new IllegalArgumentException(expression + " - " + result);
+    private static final class NotExpression implements Expression {
+        private final Expression expression;
+
+        private NotExpression(Expression expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        public boolean evaluate(String checkTarget, String permission, Tristate result) {
+            return !expression.evaluate(checkTarget, permission, result);
+        }
+    }
+
+    private static final class AndExpression implements Expression {
+        private final Expression[] expressions;
+
+        private AndExpression(List<Expression> expressions) {
+            this.expressions = expressions.toArray(new Expression[expressions.size()]);
+        }
+
+        @Override
+        public boolean evaluate(String checkTarget, String permission, Tristate result) {
+            for (Expression expression : expressions) {
+                if (!expression.evaluate(checkTarget, permission, result)) {
+                    return false;
+                }
             }
+            return true;
+        }
+    }
 
-            return Boolean.parseBoolean(result);
+    private static final class OrExpression implements Expression {
+        private final Expression[] expressions;
 
-        } catch (Throwable t) {
-            t.printStackTrace();
+        private OrExpression(List<Expression> expressions) {
+            this.expressions = expressions.toArray(new Expression[expressions.size()]);
         }
 
-        return false;
+        @Override
+        public boolean evaluate(String checkTarget, String permission, Tristate result) {
+            for (Expression expression : expressions) {
+                if (expression.evaluate(checkTarget, permission, result)) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 
     /**
-     * Tests whether a filter is valid
+     * A recursive descent parser for the filter grammar.
      *
-     * @param filter the filter to test
-     * @return true if the filter is valid
+     * <pre>
+     * or      := and ('|' and)*
+     * and     := unary ('&amp;' unary)*
+     * unary   := '!' unary | primary
+     * primary := token | '(' or ')'
+     * </pre>
      */
-    public static boolean isValidFilter(String filter) {
-        if (filter.equals("")) {
-            return true;
+    private static final class Parser {
+        private final List<String> tokens = new ArrayList<>();
+        private int position = 0;
+
+        private Parser(String filter) {
+            StringTokenizer tokenizer = new StringTokenizer(filter, " |&()!", true);
+            while (tokenizer.hasMoreTokens()) {
+                String token = tokenizer.nextToken();
+                if (!token.equals(" ")) {
+                    tokens.add(token);
+                }
+            }
         }
 
-        // get the script engine
-        ScriptEngine engine = Scripting.getScriptEngine();
-        if (engine == null) {
-            return false;
+        private Expression parse() {
+            Expression expression = parseOr();
+            if (position != tokens.size()) {
+                throw new IllegalArgumentException("Unexpected token '" + tokens.get(position) + "'");
+            }
+            return expression;
         }
 
-        // tokenize the filter
-        StringTokenizer tokenizer = new StringTokenizer(filter, " |&()!", true);
-
-        // build an expression which can be evaluated by the javascript engine
-        StringBuilder expressionBuilder = new StringBuilder();
+        private Expression parseOr() {
+            List<Expression> expressions = new ArrayList<>();
+            expressions.add(parseAnd());
+            while (accept("|")) {
+                expressions.add(parseAnd());
+            }
+            return expressions.size() == 1 ? expressions.get(0) : new OrExpression(expressions);
+        }
 
-        // read the tokens
-        while (tokenizer.hasMoreTokens()) {
-            String token = tokenizer.nextToken();
+        private Expression parseAnd() {
+            List<Expression> expressions = new ArrayList<>();
+            expressions.add(parseUnary());
+            while (accept("&")) {
+                expressions.add(parseUnary());
+            }
+            return expressions.size() == 1 ? expressions.get(0) : new AndExpression(expressions);
+        }
 
-            // if the token is a delimiter, just append it to the expression
-            if (isDelim(token)) {
-                expressionBuilder.append(token);
-            } else {
-                expressionBuilder.append("true"); // dummy result
+        private Expression parseUnary() {
+            if (accept("!")) {
+                return new NotExpression(parseUnary());
             }
+            return parsePrimary();
         }
 
-        // build the expression
-        String expression = expressionBuilder.toString().replace("&", "&&").replace("|", "||");
+        private Expression parsePrimary() {
+            if (position == tokens.size()) {
+                throw new IllegalArgumentException("Unexpected end of filter");
+            }
 
-        // evaluate the expression using the script engine
-        try {
-            String result = engine.eval(expression).toString();
-            if (!result.equals("true") && !result.equals("false")) {
-                throw new IllegalArgumentException(expression + " - " + result);
+            if (accept("(")) {
+                Expression expression = parseOr();
+                if (!accept(")")) {
+                    throw new IllegalArgumentException("Missing ')'");
+                }
+                return expression;
             }
 
-            return true;
+            String token = tokens.get(position);
+            if (isDelim(token)) {
+                throw new IllegalArgumentException("Unexpected token '" + token + "'");
+            }
+            position++;
+            return new TokenExpression(token);
+        }
 
-        } catch (Throwable t) {
+        private boolean accept(String token) {
+            if (position < tokens.size() && tokens.get(position).equals(token)) {
+                position++;
+                return true;
+            }
             return false;
         }
-    }
 
-    private static boolean isDelim(String token) {
-        return token.equals(" ") ||
-                token.equals("|") ||
-                token.equals("&") ||
-                token.equals("(") ||
-                token.equals(")") ||
-                token.equals("!");
+        private static boolean isDelim(String token) {
+            return token.equals("|") ||
+                    token.equals("&") ||
+                    token.equals("(") ||
+                    token.equals(")") ||
+                    token.equals("!");
+        }
     }
 
 }
@@ -27,37 +27,53 @@ package me.lucko.luckperms.common.verbose;
 
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.api.context.ContextSet;
+import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.common.commands.sender.Sender;
 
 import java.util.Map;
-import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Accepts {@link CheckData} and passes it onto registered {@link VerboseListener}s.
  */
 public class VerboseHandler implements Runnable {
+
+    // the maximum number of checks waiting to be passed to listeners
+    private static final int BUFFER_CAPACITY = 1 << 14;
+
+    // how often the handler wakes up to remove invalid listeners, if no checks are offered
+    private static final long HOUSEKEEPING_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
     private final String pluginVersion;
 
     // the listeners currently registered
     private final Map<UUID, VerboseListener> listeners;
 
-    // a queue of check data
-    private final Queue<CheckData> queue;
+    // a buffer of check data waiting to be passed to listeners
+    private final CheckDataBuffer buffer;
 
-    // if there are any listeners currently registered
-    private boolean listening = false;
+    // a snapshot of the registered listeners, read by threads offering checks
+    private volatile VerboseListener[] listening = new VerboseListener[0];
+
+    // the lowest sample rate of the registered listeners
+    private int sampleRate = 1;
+
+    // the thread running the handler, and if it is currently waiting for checks to be offered
+    private volatile Thread thread = null;
+    private volatile boolean waiting = false;
 
     // if the handler should shutdown
-    private boolean shutdown = false;
+    private volatile boolean shutdown = false;
 
     public VerboseHandler(Executor executor, String pluginVersion) {
         this.pluginVersion = "v" + pluginVersion;
         listeners = new ConcurrentHashMap<>();
-        queue = new ConcurrentLinkedQueue<>();
+        buffer = new CheckDataBuffer(BUFFER_CAPACITY);
 
         executor.execute(this);
     }
@@ -65,8 +81,9 @@ public class VerboseHandler implements Runnable {
     /**
      * Offers check data to the handler, to be eventually passed onto listeners.
      *
-     * <p>The check data is added to a queue to be processed later, to avoid blocking
-     * the main thread each time a permission check is made.</p>
+     * <p>The check data is added to a buffer to be processed later, to avoid blocking
+     * the main thread each time a permission check is made. If the buffer is full, the
+     * check is dropped.</p>
      *
      * @param checkOrigin the origin of the check
      * @param checkTarget the target of the permission check
@@ -76,27 +93,106 @@ public class VerboseHandler implements Runnable {
      */
     public void offerCheckData(CheckOrigin checkOrigin, String checkTarget, ContextSet checkContext, String permission, Tristate result) {
         // don't bother even processing the check if there are no listeners registered
-        if (!listening) {
+        VerboseListener[] listening = this.listening;
+        if (listening.length == 0) {
+            return;
+        }
+
+        // skip the check if it isn't sampled by any listener, before doing any other work
+        int sample = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+        if (!VerboseListener.isSampled(sample, sampleRate)) {
+            return;
+        }
+
+        // skip the check if no listener will record it
+        if (!test(listening, sample, checkTarget, permission, result)) {
             return;
         }
 
+        // capture the trace, but leave creating the stack trace elements until they're needed
         //noinspection ThrowableNotThrown
-        StackTraceElement[] trace = new Exception().getStackTrace();
+        Throwable trace = new Throwable();
+
+        // add the check data to the buffer to be processed later.
+        offer(listening, new CheckData(checkOrigin, checkTarget, checkContext.makeImmutable(), trace, permission, result, sample));
+    }
+
+    /**
+     * Offers the data from a batch of checks to the handler.
+     *
+     * <p>Equivalent to offering each check separately, except that the listening state is
+     * only tested once, and a single stack trace is captured for all of the sampled checks
+     * in the batch.</p>
+     *
+     * @param checkOrigin the origin of the checks
+     * @param checkTarget the target of the permission checks
+     * @param checkContext the contexts where the checks occurred
+     * @param permissions the permissions which were checked for
+     * @param results the results of the checks
+     * @param offset the position of the first result in the results array
+     */
+    public void offerCheckData(CheckOrigin checkOrigin, String checkTarget, ContextSet checkContext, String[] permissions, Tristate[] results, int offset) {
+        // don't bother even processing the checks if there are no listeners registered
+        VerboseListener[] listening = this.listening;
+        if (listening.length == 0) {
+            return;
+        }
+
+        Throwable trace = null;
+        ImmutableContextSet context = null;
+
+        for (int i = 0; i < permissions.length; i++) {
+            int sample = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+            if (!VerboseListener.isSampled(sample, sampleRate) || !test(listening, sample, checkTarget, permissions[i], results[offset + i])) {
+                continue;
+            }
 
-        // add the check data to a queue to be processed later.
-        queue.offer(new CheckData(checkOrigin, checkTarget, checkContext.makeImmutable(), trace, permission, result));
+            if (trace == null) {
+                //noinspection ThrowableNotThrown
+                trace = new Throwable();
+                context = checkContext.makeImmutable();
+            }
+
+            offer(listening, new CheckData(checkOrigin, checkTarget, context, trace, permissions[i], results[offset + i], sample));
+        }
+    }
+
+    private void offer(VerboseListener[] listening, CheckData data) {
+        if (!buffer.offer(data)) {
+            // let the listeners which would have recorded the check know that it was lost
+            for (VerboseListener listener : listening) {
+                listener.acceptDropped(data);
+            }
+            return;
+        }
+
+        // wake the handler, if it's waiting for data
+        if (waiting) {
+            waiting = false;
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private static boolean test(VerboseListener[] listening, int sample, String checkTarget, String permission, Tristate result) {
+        boolean accepted = false;
+        // every listener is tested, so each one counts the checks it has sampled
+        for (VerboseListener listener : listening) {
+            accepted |= listener.test(sample, checkTarget, permission, result);
+        }
+        return accepted;
     }
 
     /**
      * Registers a new listener for the given player.
      *
      * @param sender the sender to notify, if notify is true
-     * @param filter the filter string
+     * @param filter the compiled filter
      * @param notify if the sender should be notified in chat on each check
+     * @param sampleRate the listener will only receive 1 in every sampleRate checks
      */
-    public void registerListener(Sender sender, String filter, boolean notify) {
-        listeners.put(sender.getUuid(), new VerboseListener(pluginVersion, sender, filter, notify));
-        listening = true;
+    public void registerListener(Sender sender, VerboseFilter filter, boolean notify, int sampleRate) {
+        listeners.put(sender.getUuid(), new VerboseListener(pluginVersion, sender, filter, notify, sampleRate));
+        updateListeningState();
     }
 
     /**
@@ -109,11 +205,14 @@ public class VerboseHandler implements Runnable {
         // immediately flush, so the listener gets all current data
         flush();
 
-        return listeners.remove(uuid);
+        VerboseListener listener = listeners.remove(uuid);
+        updateListeningState();
+        return listener;
     }
 
     @Override
     public void run() {
+        thread = Thread.currentThread();
         while (true) {
 
             // remove listeners where the sender is no longer valid
@@ -128,26 +227,51 @@ public class VerboseHandler implements Runnable {
             }
 
             // update listening state
-            listening = !listeners.isEmpty();
+            updateListeningState();
+
+            // wait until a check is offered. the flag is set before the buffer is tested,
+            // so a check offered in between will unpark the thread before it parks
+            waiting = true;
+            if (buffer.isEmpty() && !shutdown) {
+                LockSupport.parkNanos(this, HOUSEKEEPING_INTERVAL);
+            }
+            waiting = false;
+        }
+    }
 
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException ignored) {}
+    private void updateListeningState() {
+        int sampleRate = Integer.MAX_VALUE;
+        for (VerboseListener listener : listeners.values()) {
+            sampleRate = Math.min(sampleRate, listener.getSampleRate());
         }
+
+        // update the rate first, so checks aren't offered using the rate from before a listener was added
+        this.sampleRate = listeners.isEmpty() ? 1 : sampleRate;
+        this.listening = listeners.values().toArray(new VerboseListener[0]);
     }
 
     /**
      * Flushes the current check data to the listeners.
      */
     public synchronized void flush() {
-        for (CheckData e; (e = queue.poll()) != null; ) {
+        for (CheckData e; (e = buffer.poll()) != null; ) {
             for (VerboseListener listener : listeners.values()) {
                 listener.acceptData(e);
             }
         }
     }
 
+    /**
+     * Gets the buffer holding check data waiting to be passed to listeners.
+     *
+     * @return the buffer
+     */
+    public CheckDataBuffer getBuffer() {
+        return buffer;
+    }
+
     public void shutdown() {
         shutdown = true;
+        LockSupport.unpark(thread);
     }
 }
@@ -75,12 +75,17 @@ public class VerboseListener {
     @Getter
     private final Sender notifiedSender;
 
-    // the filter string
-    private final String filter;
+    // the compiled filter
+    @Getter
+    private final VerboseFilter filter;
 
     // if we should notify the sender
     private final boolean notify;
 
+    // the listener only processes 1 in every sampleRate checks
+    @Getter
+    private final int sampleRate;
+
     // the number of checks we have processed
     private final AtomicInteger counter = new AtomicInteger(0);
 
@@ -88,20 +93,74 @@ public class VerboseListener {
     // listener
     private final AtomicInteger matchedCounter = new AtomicInteger(0);
 
+    // the number of checks which passed the filter, but were dropped by the handler because
+    // its buffer was full
+    private final AtomicInteger droppedCounter = new AtomicInteger(0);
+
     // the checks which passed the filter, up to a max size of #DATA_TRUNCATION
     private final List<CheckData> results = new ArrayList<>(DATA_TRUNCATION / 10);
 
     /**
-     * Accepts and processes check data.
+     * Gets if a check with the given sample value is sampled at the given rate.
      *
-     * @param data the data to process
+     * <p>The sample values of checks are uniformly distributed, so checks with a value
+     * in the lowest 1 / sampleRate of the range are sampled. Any check sampled at a
+     * given rate is also sampled at all lower rates.</p>
+     *
+     * @param sample the sample value of the check, between 0 and {@link Integer#MAX_VALUE}
+     * @param sampleRate the sample rate
+     * @return if the check is sampled
      */
-    public void acceptData(CheckData data) {
+    static boolean isSampled(int sample, int sampleRate) {
+        return sampleRate <= 1 || sample < Integer.MAX_VALUE / sampleRate;
+    }
+
+    /**
+     * Tests if a check should be recorded by this listener.
+     *
+     * <p>This is called on the thread making the check, before any check data is
+     * created, so that checks which no listener is interested in can be dropped
+     * without capturing a trace.</p>
+     *
+     * @param sample the sample value of the check
+     * @param checkTarget the target of the check
+     * @param permission the permission which was checked for
+     * @param result the result of the check
+     * @return if the check should be recorded
+     */
+    public boolean test(int sample, String checkTarget, String permission, Tristate result) {
+        // ignore checks which weren't sampled for this listener
+        if (!isSampled(sample, sampleRate)) {
+            return false;
+        }
+
         // increment handled counter
         counter.incrementAndGet();
 
-        // check if the data passes our filters
-        if (!VerboseFilter.passesFilter(data, filter)) {
+        return filter.evaluate(checkTarget, permission, result);
+    }
+
+    /**
+     * Records that check data was dropped by the handler, if this listener would
+     * have accepted it.
+     *
+     * @param data the data which was dropped
+     */
+    public void acceptDropped(CheckData data) {
+        if (isSampled(data.getSample(), sampleRate) && filter.evaluate(data)) {
+            droppedCounter.incrementAndGet();
+        }
+    }
+
+    /**
+     * Accepts and processes check data.
+     *
+     * @param data the data to process
+     */
+    public void acceptData(CheckData data) {
+        // check if the data was sampled for this listener, and passes our filter.
+        // the data has already been counted by #test
+        if (!isSampled(data.getSample(), sampleRate) || !filter.evaluate(data)) {
             return;
         }
 
@@ -175,11 +234,11 @@ public class VerboseListener {
         long secondsTaken = (now - startTime) / 1000L;
         String duration = DateUtil.formatTimeShort(secondsTaken);
 
-        String filter = this.filter;
-        if (filter == null || filter.equals("")){
+        String filter;
+        if (this.filter.isEmpty()) {
             filter = "any";
         } else {
-            filter = "`" + filter + "`";
+            filter = "`" + this.filter + "`";
         }
 
         // start building the message output
@@ -196,9 +255,16 @@ public class VerboseListener {
                 .add("| Count | **" + matchedCounter.get() + "** / " + counter.get() + " |")
                 .add("| User | " + notifiedSender.getNameWithLocation() + " |")
                 .add("| Filter | " + filter + " |")
+                .add("| Sample Rate | " + (sampleRate <= 1 ? "all checks" : "1 in " + sampleRate + " checks") + " |")
                 .add("| Include traces | " + showTraces + " |")
                 .add("");
 
+        // warn if checks were dropped
+        if (droppedCounter.get() > 0) {
+            prettyOutput.add("**WARN:** " + droppedCounter.get() + " matching checks were dropped, as they were made faster than they could be processed. Consider using a more specific filter, or sampling with '--sample=<n>'.");
+            prettyOutput.add("");
+        }
+
         // warn if data was truncated
         if (matchedCounter.get() > results.size()) {
             prettyOutput.add("**WARN:** Result set exceeded max size of " + DATA_TRUNCATION + ". The output below was truncated to " + DATA_TRUNCATION + " entries.");
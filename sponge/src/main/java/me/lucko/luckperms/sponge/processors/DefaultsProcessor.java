@@ -33,6 +33,8 @@ import me.lucko.luckperms.common.processors.PermissionProcessor;
 import me.lucko.luckperms.sponge.service.LuckPermsService;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 @AllArgsConstructor
 public class DefaultsProcessor implements PermissionProcessor {
@@ -58,4 +60,14 @@ public class DefaultsProcessor implements PermissionProcessor {
     public void updateBacking(Map<String, Boolean> map) {
         // Do nothing, this doesn't use the backing
     }
+
+    @Override
+    public PermissionProcessor copy() {
+        return this;
+    }
+
+    @Override
+    public Predicate<String> getAffectedPermissions(Set<String> changedKeys) {
+        return permission -> false;
+    }
 }
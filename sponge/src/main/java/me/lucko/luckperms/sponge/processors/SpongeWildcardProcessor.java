@@ -25,40 +25,42 @@
 
 package me.lucko.luckperms.sponge.processors;
 
+import com.google.common.collect.Maps;
+
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.common.processors.PermissionProcessor;
+import me.lucko.luckperms.common.processors.PermissionTrie;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
+/**
+ * Permission processor which applies Sponge's implicit wildcard behaviour, where a node
+ * also applies to all of its child nodes.
+ */
 public class SpongeWildcardProcessor implements PermissionProcessor {
-    private Map<String, Boolean> map = null;
+    private volatile PermissionTrie trie = null;
 
     @Override
     public Tristate hasPermission(String permission) {
-        String node = permission;
-
-        while (true) {
-            int endIndex = node.lastIndexOf('.');
-            if (endIndex == -1) {
-                break;
-            }
+        return trie.getLongestPrefixValue(permission);
+    }
 
-            node = node.substring(0, endIndex);
-            if (!node.isEmpty()) {
-                Boolean b = map.get(node);
-                if (b != null) {
-                    return Tristate.fromBoolean(b);
-                }
-            }
-        }
+    @Override
+    public void updateBacking(Map<String, Boolean> map) {
+        trie = PermissionTrie.compile(map, Function.identity());
+    }
 
-        return Tristate.UNDEFINED;
+    @Override
+    public PermissionProcessor copy() {
+        return new SpongeWildcardProcessor();
     }
 
     @Override
-    public void updateBacking(Map<String, Boolean> map) {
-        if (this.map == null) {
-            this.map = map;
-        }
+    public Predicate<String> getAffectedPermissions(Set<String> changedKeys) {
+        PermissionTrie changed = PermissionTrie.compile(Maps.asMap(changedKeys, k -> Boolean.TRUE), Function.identity());
+        return permission -> changed.getLongestPrefixValue(permission) != Tristate.UNDEFINED;
     }
 }
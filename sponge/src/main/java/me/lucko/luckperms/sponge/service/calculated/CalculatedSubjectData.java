@@ -37,6 +37,7 @@ import com.google.common.collect.ImmutableSortedMap;
 
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
+import me.lucko.luckperms.common.caching.type.CompactPermissionMap;
 import me.lucko.luckperms.common.calculators.PermissionCalculator;
 import me.lucko.luckperms.common.calculators.PermissionCalculatorMetadata;
 import me.lucko.luckperms.common.contexts.ContextSetComparator;
@@ -323,20 +324,17 @@ public class CalculatedSubjectData implements LPSubjectData {
         @Getter
         private final PermissionCalculator calculator;
 
-        @Getter
-        private final Map<String, Boolean> permissions;
-
         public CalculatorHolder(PermissionCalculator calculator) {
             this.calculator = calculator;
-            this.permissions = new ConcurrentHashMap<>();
-            this.calculator.updateBacking(permissions);
+            this.calculator.updateBacking(CompactPermissionMap.of());
+        }
+
+        public Map<String, Boolean> getPermissions() {
+            return calculator.getBacking();
         }
 
         public void setPermissions(Map<String, Boolean> permissions) {
-            this.permissions.clear();
-            this.permissions.putAll(permissions);
-            calculator.updateBacking(this.permissions);
-            calculator.invalidateCache();
+            calculator.updateBacking(CompactPermissionMap.copyOf(permissions));
         }
     }
 }